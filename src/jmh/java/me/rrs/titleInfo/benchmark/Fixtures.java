@@ -0,0 +1,133 @@
+package me.rrs.titleInfo.benchmark;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import io.papermc.paper.registry.RegistryAccess;
+import io.papermc.paper.registry.RegistryKey;
+import me.rrs.titleInfo.Metrics;
+import me.rrs.titleInfo.PluginSettings;
+import me.rrs.titleInfo.PublicWaypoints;
+import me.rrs.titleInfo.Title;
+import me.rrs.titleInfo.TitleInfo;
+import me.rrs.titleInfo.PlayerSession;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.mockito.MockSettings;
+import org.mockito.MockedStatic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Headless stand-ins for the server, a world and the plugin.
+ * <p>
+ * Mocks are stub-only so they do not record invocations, which would otherwise grow without
+ * bound and dominate the measurements.
+ */
+final class Fixtures {
+
+    static final String WORLD_NAME = "world";
+
+    private static final AtomicInteger TICK = new AtomicInteger();
+    private static World world;
+
+    private Fixtures() {
+    }
+
+    static MockSettings stubOnly() {
+        return withSettings().stubOnly();
+    }
+
+    /**
+     * The single overworld of the stub server, installed on first use.
+     */
+    static synchronized World world() {
+        if (world != null) return world;
+
+        Biome plains = mock(Biome.class, stubOnly());
+        when(plains.getKey()).thenReturn(NamespacedKey.minecraft("plains"));
+
+        world = mock(World.class, stubOnly());
+        when(world.getName()).thenReturn(WORLD_NAME);
+        when(world.getEnvironment()).thenReturn(World.Environment.NORMAL);
+        when(world.getTime()).thenReturn(6000L);
+        when(world.getBiome(anyInt(), anyInt(), anyInt())).thenReturn(plains);
+
+        Server server = mock(Server.class, stubOnly());
+        when(server.getCurrentTick()).thenAnswer(invocation -> TICK.incrementAndGet());
+        when(server.getWorld(WORLD_NAME)).thenReturn(world);
+        when(server.getWorlds()).thenReturn(List.of(world));
+        when(server.getLogger()).thenReturn(Logger.getLogger("Server"));
+        try {
+            // Bukkit.setServer() logs build info that needs a real server
+            Field field = Bukkit.class.getDeclaredField("server");
+            field.setAccessible(true);
+            field.set(null, server);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to install the stub server", e);
+        }
+        return world;
+    }
+
+    /**
+     * The bundled config.yml, as a fresh copy that benchmarks can change.
+     */
+    static YamlDocument config() throws IOException {
+        try (InputStream in = TitleInfo.class.getResourceAsStream("/config.yml")) {
+            if (in == null) throw new IOException("config.yml not found on the classpath");
+            return YamlDocument.create(in);
+        }
+    }
+
+    static TitleInfo plugin(YamlDocument config, File dataFolder) {
+        world();
+        Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+
+        TitleInfo plugin = mock(TitleInfo.class, stubOnly());
+        when(plugin.getConfiguration()).thenReturn(config);
+        when(plugin.getSettings()).thenReturn(PluginSettings.parse(config));
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("TitleInfo"));
+        when(plugin.getDataFolder()).thenReturn(dataFolder);
+        when(plugin.getServer()).thenReturn(Bukkit.getServer());
+        when(plugin.getSessions()).thenReturn(sessions);
+        when(plugin.getSession(any())).thenAnswer(invocation -> sessions.get(invocation.<UUID>getArgument(0)));
+        when(plugin.getMetrics()).thenReturn(new Metrics());
+        when(plugin.getPublicWaypoints()).thenReturn(new PublicWaypoints(64));
+        return plugin;
+    }
+
+    /**
+     * Creates the render handler with an empty biome registry; names are formatted on first use instead.
+     */
+    @SuppressWarnings("unchecked")
+    static Title title(TitleInfo plugin) {
+        Registry<Biome> biomes = mock(Registry.class, stubOnly());
+        when(biomes.iterator()).thenAnswer(invocation -> Collections.emptyIterator());
+        RegistryAccess access = mock(RegistryAccess.class, stubOnly());
+        when(access.getRegistry(RegistryKey.BIOME)).thenReturn(biomes);
+
+        try (MockedStatic<RegistryAccess> registryAccess = mockStatic(RegistryAccess.class)) {
+            registryAccess.when(RegistryAccess::registryAccess).thenReturn(access);
+            return new Title(plugin);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package me.rrs.titleInfo.benchmark;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import me.rrs.titleInfo.PlayerSession;
+import me.rrs.titleInfo.Title;
+import me.rrs.titleInfo.TitleInfo;
+import me.rrs.titleInfo.Waypoint;
+import me.rrs.titleInfo.WaypointBook;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of one action bar refresh for a single player.
+ * <p>
+ * A moving player crosses a block boundary on every call, so each refresh renders a new message;
+ * a standing player measures the change detection that skips rendering. With {@code asyncRender}
+ * only the snapshot capture is measured, the message is built on a worker.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class RenderBenchmark {
+
+    @Param({"coordinates", "coordinates,direction,time", "coordinates,direction,time,biome,waypoint"})
+    public String options;
+
+    @Param({"0", "10", "1000"})
+    public int waypoints;
+
+    @Param({"true", "false"})
+    public boolean moving;
+
+    @Param({"false", "true"})
+    public boolean asyncRender;
+
+    private Title title;
+    private Player player;
+    private Location location;
+
+    @Setup
+    public void setup() throws IOException {
+        World world = Fixtures.world();
+        YamlDocument config = Fixtures.config();
+        config.set("action_bar.async_render.enabled", asyncRender);
+        TitleInfo plugin = Fixtures.plugin(config, null);
+        UUID uuid = UUID.randomUUID();
+        WaypointBook book = new WaypointBook();
+        for (int i = 0; i < waypoints; i++) {
+            book.put(new Waypoint("Waypoint" + i, new Location(world, i * 16, 64, -i * 16)));
+        }
+        if (waypoints > 0) book.setActive(book.get("Waypoint" + (waypoints - 1)));
+        plugin.getSessions().put(uuid, new PlayerSession(uuid, new HashSet<>(Arrays.asList(options.split(","))), book));
+
+        location = new Location(world, 0.5, 64, 0.5, 45f, 0f);
+        player = mock(Player.class, Fixtures.stubOnly());
+        when(player.getUniqueId()).thenReturn(uuid);
+        when(player.isOnline()).thenReturn(true);
+        when(player.getWorld()).thenReturn(world);
+        // Like the server, hand out a copy of the location
+        when(player.getLocation()).thenAnswer(invocation -> location.clone());
+
+        title = Fixtures.title(plugin);
+    }
+
+    @TearDown
+    public void tearDown() {
+        title.close();
+    }
+
+    @Benchmark
+    public void updatePlayerInfo() {
+        if (moving) location.add(1, 0, 0);
+        title.updatePlayerInfo(player);
+    }
+}
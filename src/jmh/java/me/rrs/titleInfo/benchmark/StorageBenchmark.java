@@ -0,0 +1,172 @@
+package me.rrs.titleInfo.benchmark;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import me.rrs.titleInfo.DatabaseManager;
+import me.rrs.titleInfo.PlayerStorage;
+import me.rrs.titleInfo.TitleInfo;
+import me.rrs.titleInfo.Waypoint;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage operations against an SQLite database pre-filled with {@code rows} waypoints,
+ * {@value #WAYPOINTS_PER_PLAYER} per player.
+ * <p>
+ * Saves are measured including the flush that commits them, once per save and once for a batch of
+ * {@value #BATCH} saves sharing a transaction, which is what the write-behind queue does under load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class StorageBenchmark {
+
+    static final int WAYPOINTS_PER_PLAYER = 10;
+    static final int BATCH = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"WAL", "DELETE"})
+    public String journalMode;
+
+    private File dataFolder;
+    private World world;
+    private DatabaseManager db;
+    private UUID[] players;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        world = Fixtures.world();
+        dataFolder = Files.createTempDirectory("titleinfo-benchmark").toFile();
+
+        YamlDocument config = Fixtures.config();
+        config.set("storage.type", "sqlite");
+        config.set("storage.sqlite.journal_mode", journalMode);
+        TitleInfo plugin = Fixtures.plugin(config, dataFolder);
+
+        players = players(rows);
+
+        // Let the plugin create its schema, then bulk load rows directly, saving them one by one takes too long
+        new DatabaseManager(plugin).close();
+        populate(new File(dataFolder, "titleinfo.db"), players, rows);
+        db = new DatabaseManager(plugin);
+    }
+
+    /**
+     * The players owning {@code rows} waypoints, the same ones on every run.
+     */
+    static UUID[] players(int rows) {
+        Random random = new Random(42);
+        UUID[] players = new UUID[Math.max(1, rows / WAYPOINTS_PER_PLAYER)];
+        for (int i = 0; i < players.length; i++) players[i] = new UUID(random.nextLong(), random.nextLong());
+        return players;
+    }
+
+    static void populate(File file, UUID[] players, int rows) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file.getPath())) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT OR IGNORE INTO titleinfo_worlds (name) VALUES ('" + Fixtures.WORLD_NAME + "')");
+            }
+            int worldId;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT id FROM titleinfo_worlds WHERE name = '" + Fixtures.WORLD_NAME + "'")) {
+                rs.next();
+                worldId = rs.getInt(1);
+            }
+
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO titleinfo_waypoints " +
+                    "(uuid_msb, uuid_lsb, name, world_id, x, y, z) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                Random random = new Random(7);
+                int count = 0, batched = 0;
+                for (UUID uuid : players) {
+                    for (int i = 0; i < WAYPOINTS_PER_PLAYER && count < rows; i++, count++) {
+                        insert.setLong(1, uuid.getMostSignificantBits());
+                        insert.setLong(2, uuid.getLeastSignificantBits());
+                        insert.setString(3, "Waypoint" + i);
+                        insert.setInt(4, worldId);
+                        insert.setDouble(5, random.nextInt(20000) - 10000);
+                        insert.setDouble(6, 64);
+                        insert.setDouble(7, random.nextInt(20000) - 10000);
+                        insert.addBatch();
+                    }
+                    if (++batched % 1000 == 0) insert.executeBatch();
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.close();
+        delete(dataFolder);
+    }
+
+    static void delete(File dataFolder) {
+        File[] files = dataFolder.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dataFolder.delete();
+    }
+
+    private UUID randomPlayer() {
+        return players[ThreadLocalRandom.current().nextInt(players.length)];
+    }
+
+    private Waypoint randomWaypoint() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Location location = new Location(world, random.nextInt(20000) - 10000, 64, random.nextInt(20000) - 10000);
+        return new Waypoint("Waypoint" + random.nextInt(WAYPOINTS_PER_PLAYER), location);
+    }
+
+    @Benchmark
+    public List<Waypoint> getPlayerWaypoints() {
+        return db.getPlayerWaypoints(randomPlayer());
+    }
+
+    @Benchmark
+    public PlayerStorage.PlayerData loadPlayerData() {
+        return db.loadPlayerData(randomPlayer());
+    }
+
+    @Benchmark
+    public boolean saveWaypoint() {
+        db.saveWaypoint(randomPlayer(), randomWaypoint());
+        return db.getWriteQueue().flush();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean saveWaypointBatch() {
+        for (int i = 0; i < BATCH; i++) db.saveWaypoint(randomPlayer(), randomWaypoint());
+        return db.getWriteQueue().flush();
+    }
+
+    @Benchmark
+    public boolean savePlayerDisplayPrefs() {
+        db.savePlayerDisplayPrefs(randomPlayer(), Set.of("coordinates", "direction"));
+        return db.getWriteQueue().flush();
+    }
+}
@@ -0,0 +1,190 @@
+package me.rrs.titleInfo.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import dev.dejvokep.boostedyaml.YamlDocument;
+import me.rrs.titleInfo.ConnectionPool;
+import me.rrs.titleInfo.DatabaseManager;
+import me.rrs.titleInfo.Metrics;
+import me.rrs.titleInfo.SqlDialect;
+import me.rrs.titleInfo.SqlSession;
+import me.rrs.titleInfo.SqliteConnectionPool;
+import me.rrs.titleInfo.WriteBehindQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Reads and writes running at the same time on an SQLite database pre-filled with {@code rows} waypoints:
+ * {@value #READERS} threads read a player's waypoints while one thread saves waypoints through the
+ * write-behind queue and flushes them, as the queue's own thread does.
+ * <p>
+ * {@code single_writer} is the storage's own pool, one writer connection and query-only readers keeping
+ * their prepared statements. {@code hikari} is the pool it replaced, ten Hikari connections with the
+ * driver's defaults that prepare every statement again on each borrow. Run with {@code DELETE} it is the
+ * previous setup as a whole.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class StorageContentionBenchmark {
+
+    static final int READERS = 4;
+
+    private static final String SELECT_WAYPOINTS =
+            "SELECT name, world_id, x, y, z FROM titleinfo_waypoints WHERE uuid_msb = ? AND uuid_lsb = ?";
+    private static final String UPSERT_WAYPOINT = SqlDialect.SQLITE.upsert("titleinfo_waypoints",
+            new String[]{"uuid_msb", "uuid_lsb", "name"}, new String[]{"world_id", "x", "y", "z"});
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"single_writer", "hikari"})
+    public String poolMode;
+
+    @Param({"WAL", "DELETE"})
+    public String journalMode;
+
+    private File dataFolder;
+    private ConnectionPool pool;
+    private WriteBehindQueue writeQueue;
+    private UUID[] players;
+    private int worldId;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dataFolder = Files.createTempDirectory("titleinfo-benchmark").toFile();
+        File file = new File(dataFolder, "titleinfo.db");
+
+        YamlDocument config = Fixtures.config();
+        config.set("storage.type", "sqlite");
+        config.set("storage.sqlite.journal_mode", journalMode);
+
+        // The plugin creates the schema and sets the journal mode, which is kept in the file
+        players = StorageBenchmark.players(rows);
+        new DatabaseManager(Fixtures.plugin(config, dataFolder)).close();
+        StorageBenchmark.populate(file, players, rows);
+
+        pool = switch (poolMode) {
+            case "single_writer" -> new SqliteConnectionPool(file, config);
+            case "hikari" -> new HikariSqlitePool(file);
+            default -> throw new IllegalArgumentException("Unknown pool mode " + poolMode);
+        };
+        try (SqlSession session = pool.reader();
+             Statement stmt = session.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM titleinfo_worlds WHERE name = '" + Fixtures.WORLD_NAME + "'")) {
+            rs.next();
+            worldId = rs.getInt(1);
+        }
+        // Only flushed by the writer thread
+        writeQueue = new WriteBehindQueue(Logger.getLogger("TitleInfo"), pool, new Metrics(), 3_600_000L, 500, 10000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        writeQueue.close();
+        pool.close();
+        StorageBenchmark.delete(dataFolder);
+    }
+
+    private UUID randomPlayer() {
+        return players[ThreadLocalRandom.current().nextInt(players.length)];
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(READERS)
+    public int read() throws SQLException {
+        UUID uuid = randomPlayer();
+        try (SqlSession session = pool.reader()) {
+            PreparedStatement stmt = session.prepare(SELECT_WAYPOINTS);
+            stmt.setLong(1, uuid.getMostSignificantBits());
+            stmt.setLong(2, uuid.getLeastSignificantBits());
+            int count = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) count++;
+            }
+            return count;
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean write() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID uuid = randomPlayer();
+        String name = "Waypoint" + random.nextInt(StorageBenchmark.WAYPOINTS_PER_PLAYER);
+        double x = random.nextInt(20000) - 10000, z = random.nextInt(20000) - 10000;
+
+        writeQueue.enqueue(new WriteBehindQueue.Key(uuid, "titleinfo_waypoints", name), session -> {
+            PreparedStatement stmt = session.prepare(UPSERT_WAYPOINT);
+            stmt.setLong(1, uuid.getMostSignificantBits());
+            stmt.setLong(2, uuid.getLeastSignificantBits());
+            stmt.setString(3, name);
+            stmt.setInt(4, worldId);
+            stmt.setDouble(5, x);
+            stmt.setDouble(6, 64);
+            stmt.setDouble(7, z);
+            stmt.executeUpdate();
+        });
+        return writeQueue.flush();
+    }
+
+    /**
+     * The SQLite pool before the storage had its own: the settings it used, and every borrowed
+     * connection serving reads and writes alike.
+     */
+    private static final class HikariSqlitePool implements ConnectionPool {
+
+        private final HikariDataSource dataSource;
+
+        HikariSqlitePool(File file) {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl("jdbc:sqlite:" + file.getPath());
+            config.setDriverClassName("org.sqlite.JDBC");
+            config.setMaximumPoolSize(10);
+            config.setMinimumIdle(2);
+            config.setIdleTimeout(30000);
+            config.setConnectionTimeout(30000);
+            dataSource = new HikariDataSource(config);
+        }
+
+        @Override
+        public SqlSession writer() throws SQLException {
+            return borrow();
+        }
+
+        @Override
+        public SqlSession reader() throws SQLException {
+            return borrow();
+        }
+
+        private SqlSession borrow() throws SQLException {
+            // Closing the connection hands it back to Hikari, its statements are not kept
+            return new SqlSession(dataSource.getConnection(), SqlSession::closeConnection);
+        }
+
+        @Override
+        public Stats stats() {
+            return new Stats(0, 0, 0);
+        }
+
+        @Override
+        public void close() {
+            dataSource.close();
+        }
+    }
+}
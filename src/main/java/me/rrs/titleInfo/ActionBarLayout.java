@@ -0,0 +1,217 @@
+package me.rrs.titleInfo;
+
+import me.rrs.titleInfo.TemplateParser.Part;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import org.bukkit.World;
+
+import java.util.*;
+
+/**
+ * Action bar layout compiled once from the {@code action_bar.layout} templates.
+ * <p>
+ * Each template line is a segment in the syntax of {@link TemplateParser}, with the slots {@code <xyz>}, {@code <dir>},
+ * {@code <time>}, {@code <biome>}, {@code <wp>} and {@code <nearest>}. A segment is only shown when the player
+ * has every option its slots belong to enabled. Rendering only formats the slot values.
+ */
+public final class ActionBarLayout {
+
+    public static final List<String> DEFAULT_TEMPLATES = List.of(
+            "<gold>XYZ: <white><xyz> ",
+            "<gold><dir> ",
+            "<white><time> ",
+            "<green>[<biome>] ",
+            "<aqua>WP: <wp> ",
+            "<yellow>Near: <nearest> "
+    );
+
+    private static final String[] DIRECTIONS = {"S", "SW", "W", "NW", "N", "NE", "E", "SE"};
+    private static final String[] WAYPOINT_DIRECTIONS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+
+    private final Segment[] segments;
+    private final int usedMask;
+
+    private ActionBarLayout(Segment[] segments) {
+        this.segments = segments;
+        int mask = 0;
+        for (Segment segment : segments) mask |= segment.required;
+        this.usedMask = mask;
+    }
+
+    /**
+     * Parses the templates into a layout, falling back to the default layout when none are given.
+     */
+    public static ActionBarLayout compile(List<String> templates) {
+        if (templates == null || templates.isEmpty()) templates = DEFAULT_TEMPLATES;
+
+        Segment[] segments = new Segment[templates.size()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = parseSegment(templates.get(i));
+        }
+        return new ActionBarLayout(segments);
+    }
+
+    /**
+     * Mask of the display options that appear in at least one segment; inputs for other options need not be captured.
+     */
+    public int getUsedMask() {
+        return usedMask;
+    }
+
+    /**
+     * Renders the segments enabled in {@code plan} from the player's captured inputs.
+     *
+     * @param segmentNanos if not {@code null}, the time spent formatting each slot is added to it,
+     *                     indexed by the ordinal of the slot's display option
+     * @return the message, or {@code null} if no slot had anything to show
+     */
+    Component render(PlayerRenderState state, int plan, long[] segmentNanos) {
+        TextComponent.Builder builder = Component.text();
+        boolean hasContent = false;
+
+        for (Segment segment : segments) {
+            if ((segment.required & plan) != segment.required || !segment.isAvailable(state)) continue;
+
+            for (Part<Slot> part : segment.parts) {
+                Slot slot = part.slot();
+                if (slot == null) {
+                    builder.append(part.component());
+                } else {
+                    long start = segmentNanos != null ? System.nanoTime() : 0;
+                    StringBuilder buffer = state.buffer;
+                    buffer.setLength(0);
+                    slot.write(state, buffer);
+                    builder.append(Component.text(buffer.toString(), part.style()));
+                    if (segmentNanos != null) segmentNanos[slot.option.ordinal()] += System.nanoTime() - start;
+                }
+            }
+            if (segment.required != 0) hasContent = true;
+        }
+
+        return hasContent ? builder.build() : null;
+    }
+
+    // ----------------- PARSING -----------------
+
+    private static Segment parseSegment(String template) {
+        Part<Slot>[] parts = TemplateParser.parse(template, Slot::fromTag);
+        int required = 0;
+        for (Part<Slot> part : parts) {
+            if (part.slot() != null) required |= part.slot().option.getBit();
+        }
+        return new Segment(required, parts);
+    }
+
+    // ----------------- SLOT WRITERS -----------------
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        if (value < 10) sb.append('0');
+        sb.append(value);
+    }
+
+    private static String getWorldName(World world) {
+        return switch (world.getEnvironment()) {
+            case NORMAL -> "Overworld";
+            case NETHER -> "Nether";
+            case THE_END -> "End";
+            default -> "Unknown";
+        };
+    }
+
+    private enum Slot {
+        XYZ("xyz", DisplayOption.COORDINATES) {
+            @Override
+            void write(PlayerRenderState state, StringBuilder sb) {
+                sb.append(state.getBlockX()).append(' ').append(state.getBlockY()).append(' ').append(state.getBlockZ());
+            }
+        },
+        DIR("dir", DisplayOption.DIRECTION) {
+            @Override
+            void write(PlayerRenderState state, StringBuilder sb) {
+                sb.append(DIRECTIONS[state.getYawOctant()]);
+            }
+        },
+        TIME("time", DisplayOption.TIME) {
+            @Override
+            boolean isAvailable(PlayerRenderState state) {
+                return state.getMinuteOfDay() >= 0;
+            }
+
+            @Override
+            void write(PlayerRenderState state, StringBuilder sb) {
+                int hour = (state.getMinuteOfDay() / 60 + 6) % 24;
+                int hour12 = hour % 12 == 0 ? 12 : hour % 12;
+                appendTwoDigits(sb, hour12);
+                sb.append(':');
+                appendTwoDigits(sb, state.getMinuteOfDay() % 60);
+                sb.append(hour < 12 ? " AM" : " PM");
+            }
+        },
+        BIOME("biome", DisplayOption.BIOME) {
+            @Override
+            void write(PlayerRenderState state, StringBuilder sb) {
+                sb.append(state.getBiomeName());
+            }
+        },
+        WP("wp", DisplayOption.WAYPOINT) {
+            @Override
+            boolean isAvailable(PlayerRenderState state) {
+                return state.getWaypoint() != null;
+            }
+
+            @Override
+            void write(PlayerRenderState state, StringBuilder sb) {
+                Waypoint wp = state.getWaypoint();
+                sb.append(wp.getName());
+                if (state.getWaypointDistance() < 0) {
+                    sb.append(" (in ").append(getWorldName(wp.getLocation().getWorld())).append(')');
+                } else {
+                    sb.append(' ').append(state.getWaypointDistance()).append("m ")
+                            .append(WAYPOINT_DIRECTIONS[state.getWaypointOctant()]);
+                }
+            }
+        },
+        NEAREST("nearest", DisplayOption.NEAREST) {
+            @Override
+            boolean isAvailable(PlayerRenderState state) {
+                return state.getNearest() != null;
+            }
+
+            @Override
+            void write(PlayerRenderState state, StringBuilder sb) {
+                sb.append(state.getNearest().getName()).append(' ').append(state.getNearestDistance()).append("m ")
+                        .append(WAYPOINT_DIRECTIONS[state.getNearestOctant()]);
+            }
+        };
+
+        private final String tag;
+        private final DisplayOption option;
+
+        Slot(String tag, DisplayOption option) {
+            this.tag = tag;
+            this.option = option;
+        }
+
+        boolean isAvailable(PlayerRenderState state) {
+            return true;
+        }
+
+        abstract void write(PlayerRenderState state, StringBuilder sb);
+
+        static Slot fromTag(String tag) {
+            for (Slot slot : values()) {
+                if (slot.tag.equals(tag)) return slot;
+            }
+            return null;
+        }
+    }
+
+    private record Segment(int required, Part<Slot>[] parts) {
+        boolean isAvailable(PlayerRenderState state) {
+            for (Part<Slot> part : parts) {
+                if (part.slot() != null && !part.slot().isAvailable(state)) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package me.rrs.titleInfo;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads action bar refreshes across ticks instead of rendering every online player every tick.
+ * <p>
+ * Players are walked round-robin so that each one is refreshed once per {@code refresh_interval}
+ * ticks. Each run stops once the per-tick time budget is used up and resumes from the same cursor
+ * on the next tick. While the server is running behind, the effective interval is backed off.
+ * <p>
+ * Runs on the main thread; on Folia, {@link PlayerRenderTasks} renders each player on their region instead.
+ */
+public class ActionBarScheduler implements Runnable {
+
+    private final TitleInfo plugin;
+    private final Title title;
+
+    private final List<Player> cycle = new ArrayList<>();
+    private int cursor;
+    private int backoff = 1;
+
+    private final Metrics.Histogram tickTime;
+    private final Metrics.Histogram tickPlayers;
+    private final Metrics.Counter budgetExceeded;
+
+    public ActionBarScheduler(TitleInfo plugin, Title title) {
+        this.plugin = plugin;
+        this.title = title;
+
+        Metrics metrics = plugin.getMetrics();
+        this.tickTime = metrics.timer("titleinfo_render_tick_seconds", "Time spent refreshing action bars per tick");
+        this.tickPlayers = metrics.histogram("titleinfo_render_tick_players", "Players refreshed per tick", Metrics.COUNTS);
+        this.budgetExceeded = metrics.counter("titleinfo_render_budget_exceeded", "Ticks cut short by the time budget");
+        metrics.gauge("titleinfo_render_backoff", "Current multiplier of the refresh interval", () -> backoff);
+    }
+
+    @Override
+    public void run() {
+        RenderTickEvent event = new RenderTickEvent();
+        event.begin();
+        tick(event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.online = cycle.size();
+            event.backoff = backoff;
+            event.commit();
+        }
+    }
+
+    private void tick(RenderTickEvent event) {
+        PluginSettings.ActionBar settings = plugin.getSettings().actionBar();
+        int interval = settings.refreshInterval();
+        long budgetNanos = settings.tickBudgetNanos();
+
+        // Start a new cycle once every player of the previous one has been refreshed
+        if (cursor >= cycle.size()) {
+            updateBackoff(settings, interval);
+            cycle.clear();
+            cycle.addAll(Bukkit.getOnlinePlayers());
+            cursor = 0;
+            if (cycle.isEmpty()) return;
+        }
+
+        int effectiveInterval = interval * backoff;
+        int perTick = (cycle.size() + effectiveInterval - 1) / effectiveInterval;
+        int end = Math.min(cycle.size(), cursor + perTick);
+        int first = cursor;
+        long start = System.nanoTime();
+        long elapsed = 0;
+
+        while (cursor < end) {
+            title.updatePlayerInfo(cycle.get(cursor++));
+            elapsed = System.nanoTime() - start;
+            if (budgetNanos > 0 && elapsed >= budgetNanos) {
+                if (cursor < end) {
+                    budgetExceeded.inc();
+                    event.budgetExceeded = true;
+                }
+                break;
+            }
+        }
+
+        tickTime.record(elapsed);
+        tickPlayers.record(cursor - first);
+        event.players = cursor - first;
+    }
+
+    private void updateBackoff(PluginSettings.ActionBar settings, int interval) {
+        if (!settings.backoffEnabled()) {
+            backoff = 1;
+            return;
+        }
+
+        double threshold = settings.backoffMsptThreshold();
+        int maxInterval = settings.backoffMaxInterval();
+        double mspt = Bukkit.getAverageTickTime();
+
+        if (mspt > threshold && interval * backoff * 2 <= maxInterval) {
+            backoff *= 2;
+        } else if (mspt < threshold * 0.8 && backoff > 1) {
+            backoff /= 2;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package me.rrs.titleInfo;
+
+import io.papermc.paper.registry.RegistryAccess;
+import io.papermc.paper.registry.RegistryKey;
+import org.bukkit.block.Biome;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Display names for every biome in the registry, formatted once instead of on every render.
+ * <p>
+ * Biomes added after the last refresh (e.g. by a datapack reload) are formatted on first use.
+ */
+public final class BiomeNames {
+
+    private final Map<Biome, String> names = new ConcurrentHashMap<>();
+
+    public BiomeNames() {
+        refresh();
+    }
+
+    /**
+     * Rebuilds the names from the current biome registry.
+     */
+    public void refresh() {
+        names.clear();
+        for (Biome biome : RegistryAccess.registryAccess().getRegistry(RegistryKey.BIOME)) {
+            names.put(biome, format(biome));
+        }
+    }
+
+    public String get(Biome biome) {
+        return names.computeIfAbsent(biome, BiomeNames::format);
+    }
+
+    private static String format(Biome biome) {
+        String[] parts = biome.getKey().getKey().split("_");
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (!sb.isEmpty()) sb.append(" ");
+            sb.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1).toLowerCase());
+        }
+        return sb.toString();
+    }
+}
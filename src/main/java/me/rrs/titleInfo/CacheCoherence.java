@@ -0,0 +1,137 @@
+package me.rrs.titleInfo;
+
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps cached player data in step with other servers sharing the same database.
+ * <p>
+ * Every committed batch stamps the players it touched with a new version and adds them to a change
+ * log. This server remembers the version its cached copy is based on, polls the log for changes made
+ * elsewhere and reloads those players. A player with writes of its own still queued is reloaded once
+ * they are committed instead, the cache is newer than the database until then, and the other server
+ * may have changed a row the queued writes do not touch. Joining players are checked against the stored
+ * version as well, so data kept cached from a recent session is never used once it is outdated.
+ */
+public class CacheCoherence {
+
+    // Ids of recent changes already handled, polls overlap so late commits with lower ids are not missed
+    private static final int SEEN_CAPACITY = 4096;
+
+    private final TitleInfo plugin;
+    private final Map<UUID, Long> knownVersions = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> seen = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > SEEN_CAPACITY;
+        }
+    };
+    // Changed elsewhere while this server had writes queued, reloaded once those are committed
+    private final Set<UUID> deferred = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean polling = new AtomicBoolean();
+
+    private long lastChangeId;
+    private long lastPrune;
+
+    public CacheCoherence(TitleInfo plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        PlayerStorage storage = plugin.getDbManager();
+        storage.setCommitListener(this::committed);
+        lastChangeId = storage.getLatestChangeId();
+
+        long interval = plugin.getSettings().storage().pollIntervalTicks();
+        plugin.getTaskScheduler().runAsyncTimer(this::poll, interval, interval);
+    }
+
+    private void poll() {
+        if (!polling.compareAndSet(false, true)) return;
+        try {
+            PlayerStorage storage = plugin.getDbManager();
+            PluginSettings.Storage settings = plugin.getSettings().storage();
+            int overlap = settings.pollOverlap();
+            int limit = settings.pollLimit();
+
+            Set<UUID> changed = new HashSet<>();
+            List<PlayerStorage.Change> changes = storage.pollChanges(Math.max(0, lastChangeId - overlap), limit);
+            for (PlayerStorage.Change change : changes) {
+                lastChangeId = Math.max(lastChangeId, change.id());
+                if (seen.put(change.id(), Boolean.TRUE) == null) changed.add(change.uuid());
+            }
+
+            for (UUID uuid : changed) {
+                if (plugin.getDataLoader().isCached(uuid)) plugin.getDataLoader().refresh(uuid);
+            }
+            // Catches deferred players whose queued writes were dropped rather than committed
+            for (UUID uuid : deferred) recheck(uuid);
+
+            long now = System.currentTimeMillis();
+            long retention = settings.retentionMs();
+            if (now - lastPrune > retention / 10) {
+                lastPrune = now;
+                storage.pruneChanges(now - retention);
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Failed to sync player data with other servers: " + e.getMessage());
+        } finally {
+            polling.set(false);
+        }
+    }
+
+    private void committed(UUID uuid, long version) {
+        knownVersions.put(uuid, version);
+        recheck(uuid);
+    }
+
+    private void recheck(UUID uuid) {
+        if (plugin.getDbManager().getWriteQueue().hasPending(uuid) || !deferred.remove(uuid)) return;
+        if (plugin.getDataLoader().isCached(uuid)) plugin.getDataLoader().refresh(uuid);
+    }
+
+    /**
+     * Reloads the player once their queued writes are committed, after another server changed their data.
+     */
+    public void defer(UUID uuid) {
+        deferred.add(uuid);
+        recheck(uuid);
+    }
+
+    /**
+     * Version of the player's cached data, or 0 if unknown.
+     */
+    public long getKnownVersion(UUID uuid) {
+        return knownVersions.getOrDefault(uuid, 0L);
+    }
+
+    public void markLoaded(UUID uuid, long version) {
+        knownVersions.put(uuid, version);
+    }
+
+    public void forget(UUID uuid) {
+        knownVersions.remove(uuid);
+        deferred.remove(uuid);
+    }
+
+    /**
+     * Whether another server changed the player's data since it was cached here. Blocking, call it off the main thread.
+     * With writes still queued the cached data is kept, and reloaded once they are committed if it is outdated.
+     */
+    public boolean isStale(UUID uuid) {
+        if (!plugin.getDbManager().isSyncEnabled()) return false;
+        boolean stale = plugin.getDbManager().getPlayerVersion(uuid) != getKnownVersion(uuid);
+        if (stale && plugin.getDbManager().getWriteQueue().hasPending(uuid)) {
+            defer(uuid);
+            return false;
+        }
+        return stale;
+    }
+}
@@ -0,0 +1,29 @@
+package me.rrs.titleInfo;
+
+import java.sql.SQLException;
+
+/**
+ * Hands out database sessions, separating the writer used by the write-behind queue from readers.
+ */
+public interface ConnectionPool {
+
+    /**
+     * Connections currently borrowed, connections open in total, and callers waiting for one.
+     */
+    record Stats(int active, int total, int waiting) {
+    }
+
+    /**
+     * Borrows the connection used for writes. Callers must close the session to release it.
+     */
+    SqlSession writer() throws SQLException;
+
+    /**
+     * Borrows a connection for reads. Callers must close the session to release it.
+     */
+    SqlSession reader() throws SQLException;
+
+    Stats stats();
+
+    void close();
+}
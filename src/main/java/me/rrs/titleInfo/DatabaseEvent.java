@@ -0,0 +1,49 @@
+package me.rrs.titleInfo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one storage operation, a read, a committed write batch or a migration batch.
+ * <p>
+ * JFR records the thread and duration itself. Creating and beginning an event is free when the
+ * event is not enabled in the running recording, so storage code may emit one per operation.
+ */
+@Name("me.rrs.titleinfo.Database")
+@Label("TitleInfo Database Operation")
+@Category({"TitleInfo", "Database"})
+@Description("A JDBC operation issued by TitleInfo")
+final class DatabaseEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Kind")
+    @Description("read, write, migration or maintenance")
+    String kind;
+
+    @Label("Rows")
+    @Description("Rows read or written, -1 if unknown")
+    int rows = -1;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    static DatabaseEvent start(String operation, String kind) {
+        DatabaseEvent event = new DatabaseEvent();
+        event.operation = operation;
+        event.kind = kind;
+        event.begin();
+        return event;
+    }
+
+    void finish(int rows, boolean succeeded) {
+        end();
+        if (!shouldCommit()) return;
+        this.rows = rows;
+        this.succeeded = succeeded;
+        commit();
+    }
+}
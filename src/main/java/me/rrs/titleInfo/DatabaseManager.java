@@ -1,240 +1,918 @@
 package me.rrs.titleInfo;
 
-import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.Location;
 import org.bukkit.World;
 
 import java.io.File;
 import java.sql.*;
 import java.util.*;
-
-public class DatabaseManager {
-
-    private final HikariDataSource dataSource;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * SQL storage shared by every backend; the dialect covers the syntax that differs between them.
+ * <p>
+ * Players are keyed by their UUID as two longs, display prefs are stored as a {@link DisplayOption}
+ * bitmask and waypoints reference their world through the {@code titleinfo_worlds} dictionary.
+ */
+public class DatabaseManager implements PlayerStorage {
+
+    // Version 1 is the original text schema (player_prefs, player_waypoints, active_waypoints)
+    private static final int COMPACT_VERSION = 2;
+    private static final int SYNC_VERSION = 3;
+    private static final int PUBLIC_VERSION = 4;
+
+    private final ConnectionPool pool;
     private final TitleInfo plugin;
-
-    public DatabaseManager(TitleInfo plugin) {
+    private final SqlDialect dialect;
+    private final PluginSettings.Storage storage;
+    private final SchemaMigrator migrator;
+    private final WriteBehindQueue writeQueue;
+    private final boolean syncEnabled;
+    // Identifies this server's entries in the change log
+    private final String serverId = UUID.randomUUID().toString();
+    private volatile BiConsumer<UUID, Long> commitListener;
+
+    private final Metrics.Histogram prefsQueryTime;
+    private final Metrics.Histogram waypointsQueryTime;
+    private final Metrics.Histogram activeQueryTime;
+    private final Metrics.Histogram loadQueryTime;
+    private final Metrics.Histogram versionQueryTime;
+    private final Metrics.Histogram changesQueryTime;
+
+    // Only ids known to be committed, read back from the database
+    private final Map<String, Integer> worldIds = new ConcurrentHashMap<>();
+
+    private final String upsertPrefsSql;
+    private final String upsertWaypointSql;
+    private final String upsertActiveSql;
+    private final String upsertPublicSql;
+    private final String insertWorldSql;
+
+    public DatabaseManager(TitleInfo plugin) throws SQLException {
         this.plugin = plugin;
-        this.dataSource = setupDataSource();
+        // Read once, storage settings only change on restart
+        this.storage = plugin.getSettings().storage();
+        this.dialect = storage.dialect();
+        this.pool = setupPool();
+
+        Metrics metrics = plugin.getMetrics();
+        String help = "Latency of storage reads";
+        this.prefsQueryTime = metrics.timer("titleinfo_db_query_seconds", help, "query", "get_display_prefs");
+        this.waypointsQueryTime = metrics.timer("titleinfo_db_query_seconds", help, "query", "get_waypoints");
+        this.activeQueryTime = metrics.timer("titleinfo_db_query_seconds", help, "query", "get_active_waypoint");
+        this.loadQueryTime = metrics.timer("titleinfo_db_query_seconds", help, "query", "load_player_data");
+        this.versionQueryTime = metrics.timer("titleinfo_db_query_seconds", help, "query", "get_player_version");
+        this.changesQueryTime = metrics.timer("titleinfo_db_query_seconds", help, "query", "poll_changes");
+        metrics.gauge("titleinfo_db_connections", "Database connections by state", () -> pool.stats().active(), "state", "active");
+        metrics.gauge("titleinfo_db_connections", "Database connections by state", () -> pool.stats().total(), "state", "open");
+        metrics.gauge("titleinfo_db_connection_waiters", "Threads waiting to borrow a database connection", () -> pool.stats().waiting());
+
+        this.upsertPrefsSql = dialect.upsert("titleinfo_prefs",
+                new String[]{"uuid_msb", "uuid_lsb"}, new String[]{"prefs"});
+        // The name is updated as well, MySQL's default collation matches it case-insensitively
+        this.upsertWaypointSql = dialect.upsert("titleinfo_waypoints",
+                new String[]{"uuid_msb", "uuid_lsb", "name"}, new String[]{"name", "world_id", "x", "y", "z"});
+        this.upsertActiveSql = dialect.upsert("titleinfo_active",
+                new String[]{"uuid_msb", "uuid_lsb"}, new String[]{"active_name"});
+        this.upsertPublicSql = dialect.upsert("titleinfo_public_waypoints",
+                new String[]{"name_key"}, new String[]{"name", "world_id", "x", "y", "z"});
+        this.insertWorldSql = dialect.insertIgnore("titleinfo_worlds", "name");
+
+        this.migrator = new SchemaMigrator(plugin.getLogger(), pool, dialect, List.of(
+                new SchemaMigrator.Migration(COMPACT_VERSION, "binary UUIDs, prefs bitmask and world dictionary",
+                        this::createCompactTables, new LegacyMigration()),
+                new SchemaMigrator.Migration(SYNC_VERSION, "player versions and change log for multi-server sync",
+                        this::createSyncTables, null),
+                new SchemaMigrator.Migration(PUBLIC_VERSION, "server-wide public waypoints",
+                        this::createPublicTables, null)),
+                storage.migrationBatchSize(),
+                storage.migrationBatchDelayMs());
         initializeDatabase();
+
+        this.writeQueue = new WriteBehindQueue(plugin.getLogger(), pool, metrics,
+                storage.flushIntervalMs(),
+                storage.writeBatchSize(),
+                storage.maxPending());
+        this.syncEnabled = storage.syncEnabled();
+        if (syncEnabled) writeQueue.setCommitListener(new VersionStamper());
+        migrator.startBackground();
     }
 
-    private HikariDataSource setupDataSource() {
-        HikariConfig config = new HikariConfig();
-        config.setJdbcUrl("jdbc:sqlite:" + plugin.getDataFolder() + File.separator + "titleinfo.db");
-        config.setDriverClassName("org.sqlite.JDBC");
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(2);
-        config.setIdleTimeout(30000);
-        config.setConnectionTimeout(30000);
-        return new HikariDataSource(config);
+    @Override
+    public WriteBehindQueue getWriteQueue() {
+        return writeQueue;
     }
 
-    private void initializeDatabase() {
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement()) {
+    private ConnectionPool setupPool() throws SQLException {
+        if (dialect == SqlDialect.SQLITE) {
+            File file = new File(plugin.getDataFolder(), "titleinfo.db");
+            return new SqliteConnectionPool(file, plugin.getConfiguration());
+        }
 
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS player_prefs (" +
-                    "uuid TEXT PRIMARY KEY, prefs TEXT NOT NULL)");
+        try {
+            return new HikariConnectionPool(dialect, plugin.getConfiguration());
+        } catch (RuntimeException e) {
+            // Hikari reports unreachable servers and bad credentials as unchecked exceptions
+            throw new SQLException("Failed to connect to the " + dialect.name().toLowerCase(Locale.ROOT) + " database", e);
+        }
+    }
 
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS player_waypoints (" +
-                    "uuid TEXT, name TEXT, world TEXT, x DOUBLE, y DOUBLE, z DOUBLE," +
-                    "PRIMARY KEY (uuid, name))");
+    private void initializeDatabase() throws SQLException {
+        migrator.migrate("player_prefs");
 
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS active_waypoints (" +
-                    "uuid TEXT PRIMARY KEY, active_name TEXT)");
+        try (SqlSession session = pool.reader();
+             Statement stmt = session.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name FROM titleinfo_worlds")) {
+            while (rs.next()) worldIds.put(rs.getString("name"), rs.getInt("id"));
+        }
+    }
 
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to initialize database: " + e.getMessage());
-            e.printStackTrace();
+    private void createCompactTables(SqlSession session) throws SQLException {
+        String name = dialect.varchar(255), number = dialect.doubleType(), rowid = dialect.withoutRowid();
+
+        try (Statement stmt = session.getConnection().createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS titleinfo_worlds (" +
+                    "id " + dialect.autoIncrementKey() + ", name " + name + " NOT NULL UNIQUE)");
+
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS titleinfo_prefs (" +
+                    "uuid_msb BIGINT NOT NULL, uuid_lsb BIGINT NOT NULL, prefs INT NOT NULL," +
+                    "PRIMARY KEY (uuid_msb, uuid_lsb))" + rowid);
+
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS titleinfo_waypoints (" +
+                    "uuid_msb BIGINT NOT NULL, uuid_lsb BIGINT NOT NULL, name " + name + " NOT NULL, world_id INT NOT NULL," +
+                    "x " + number + ", y " + number + ", z " + number + "," +
+                    "PRIMARY KEY (uuid_msb, uuid_lsb, name))" + rowid);
+
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS titleinfo_active (" +
+                    "uuid_msb BIGINT NOT NULL, uuid_lsb BIGINT NOT NULL, active_name " + name + "," +
+                    "PRIMARY KEY (uuid_msb, uuid_lsb))" + rowid);
         }
     }
 
-    // -------------------- Player Display Prefs --------------------
-    public void savePlayerDisplayPrefs(UUID uuid, Set<String> prefs) {
-        String prefsString = String.join(",", prefs);
+    private void createSyncTables(SqlSession session) throws SQLException {
+        try (Statement stmt = session.getConnection().createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS titleinfo_versions (" +
+                    "uuid_msb BIGINT NOT NULL, uuid_lsb BIGINT NOT NULL, version BIGINT NOT NULL," +
+                    "PRIMARY KEY (uuid_msb, uuid_lsb))" + dialect.withoutRowid());
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT OR REPLACE INTO player_prefs (uuid, prefs) VALUES (?, ?)")) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS titleinfo_changes (" +
+                    "id " + dialect.autoIncrementLongKey() + ", uuid_msb BIGINT NOT NULL, uuid_lsb BIGINT NOT NULL," +
+                    "server " + dialect.varchar(36) + " NOT NULL, changed_at BIGINT NOT NULL)");
+        }
+    }
 
-            stmt.setString(1, uuid.toString());
-            stmt.setString(2, prefsString);
-            stmt.executeUpdate();
+    private void createPublicTables(SqlSession session) throws SQLException {
+        String name = dialect.varchar(255), number = dialect.doubleType();
 
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to save display prefs for " + uuid + ": " + e.getMessage());
+        try (Statement stmt = session.getConnection().createStatement()) {
+            // Keyed by the case-folded name, the name column keeps the spelling shown to players
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS titleinfo_public_waypoints (" +
+                    "name_key " + name + " NOT NULL PRIMARY KEY, name " + name + " NOT NULL, world_id INT NOT NULL," +
+                    "x " + number + ", y " + number + ", z " + number + ")" + dialect.withoutRowid());
         }
     }
 
-    public Set<String> getPlayerDisplayPrefs(UUID uuid) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT prefs FROM player_prefs WHERE uuid = ?")) {
+    private static void setUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+        stmt.setLong(index, uuid.getMostSignificantBits());
+        stmt.setLong(index + 1, uuid.getLeastSignificantBits());
+    }
 
-            stmt.setString(1, uuid.toString());
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    String prefsString = rs.getString("prefs");
-                    return new HashSet<>(Arrays.asList(prefsString.split(",")));
-                }
-            }
+    /**
+     * Looks up the id of a world, adding it to the dictionary if it is new.
+     */
+    private int worldId(SqlSession session, String worldName) throws SQLException {
+        Integer cached = worldIds.get(worldName);
+        if (cached != null) return cached;
+
+        PreparedStatement insert = session.prepare(insertWorldSql);
+        insert.setString(1, worldName);
+        insert.executeUpdate();
+
+        // Not cached here, the row only exists for others once the surrounding transaction commits
+        PreparedStatement select = session.prepare("SELECT id FROM titleinfo_worlds WHERE name = ?");
+        select.setString(1, worldName);
+        try (ResultSet rs = select.executeQuery()) {
+            if (rs.next()) return rs.getInt("id");
+        }
+        throw new SQLException("World '" + worldName + "' missing from titleinfo_worlds after insert");
+    }
+
+    // -------------------- Player Display Prefs --------------------
+    @Override
+    public void savePlayerDisplayPrefs(UUID uuid, Set<String> prefs) {
+        int mask = DisplayOption.toMask(prefs);
+        writeQueue.enqueue(new WriteBehindQueue.Key(uuid, "player_prefs", ""), session -> {
+            PreparedStatement stmt = session.prepare(upsertPrefsSql);
+            setUuid(stmt, 1, uuid);
+            stmt.setInt(3, mask);
+            stmt.executeUpdate();
+
+            deleteLegacy(session, "DELETE FROM player_prefs WHERE uuid = ?", uuid, null);
+        });
+    }
 
+    @Override
+    public Set<String> getPlayerDisplayPrefs(UUID uuid) {
+        DatabaseEvent event = DatabaseEvent.start("get_display_prefs", "read");
+        long start = System.nanoTime();
+        int rows = 0;
+        boolean succeeded = false;
+        try (SqlSession session = pool.reader()) {
+            Set<String> prefs = readPlayerDisplayPrefs(session, uuid);
+            succeeded = true;
+            if (prefs != null) {
+                rows = 1;
+                return prefs;
+            }
         } catch (SQLException e) {
             plugin.getLogger().severe("Failed to get display prefs for " + uuid + ": " + e.getMessage());
+        } finally {
+            prefsQueryTime.record(System.nanoTime() - start);
+            event.finish(rows, succeeded);
         }
 
         return new HashSet<>();
     }
 
+    /**
+     * @return the stored prefs, or {@code null} if the player has none stored
+     */
+    private Set<String> readPlayerDisplayPrefs(SqlSession session, UUID uuid) throws SQLException {
+        Set<String> legacy = null;
+        migrator.lockShared();
+        try {
+            if (migrator.isPending(COMPACT_VERSION)) legacy = readLegacyPrefs(session, uuid);
+        } finally {
+            migrator.unlockShared();
+        }
+
+        PreparedStatement stmt = session.prepare("SELECT prefs FROM titleinfo_prefs WHERE uuid_msb = ? AND uuid_lsb = ?");
+        setUuid(stmt, 1, uuid);
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) return DisplayOption.fromMask(rs.getInt("prefs"));
+        }
+        return legacy;
+    }
+
     // -------------------- Player Waypoints --------------------
-    public void savePlayerWaypoints(UUID uuid, List<Waypoint> waypoints) {
-        try (Connection conn = dataSource.getConnection()) {
-            // Delete old waypoints
-            try (PreparedStatement deleteStmt = conn.prepareStatement(
-                    "DELETE FROM player_waypoints WHERE uuid = ?")) {
-                deleteStmt.setString(1, uuid.toString());
-                deleteStmt.executeUpdate();
-            }
-
-            // Insert new waypoints
-            try (PreparedStatement insertStmt = conn.prepareStatement(
-                    "INSERT INTO player_waypoints (uuid, name, world, x, y, z) VALUES (?, ?, ?, ?, ?, ?)")) {
-
-                for (Waypoint wp : waypoints) {
-                    Location loc = wp.getLocation();
-                    insertStmt.setString(1, uuid.toString());
-                    insertStmt.setString(2, wp.getName());
-                    insertStmt.setString(3, loc.getWorld().getName());
-                    insertStmt.setDouble(4, loc.getX());
-                    insertStmt.setDouble(5, loc.getY());
-                    insertStmt.setDouble(6, loc.getZ());
-                    insertStmt.addBatch();
+    /**
+     * Inserts or updates a single waypoint. A stored waypoint whose name only differs in case is replaced.
+     */
+    @Override
+    public void saveWaypoint(UUID uuid, Waypoint waypoint) {
+        String name = waypoint.getName();
+        Location loc = waypoint.getLocation();
+        String worldName = loc.getWorld().getName();
+        double x = loc.getX(), y = loc.getY(), z = loc.getZ();
+
+        writeQueue.enqueue(waypointKey(uuid, name), session -> {
+            PreparedStatement deleteStmt = session.prepare(
+                    "DELETE FROM titleinfo_waypoints WHERE uuid_msb = ? AND uuid_lsb = ? AND LOWER(name) = LOWER(?) AND name <> ?");
+            setUuid(deleteStmt, 1, uuid);
+            deleteStmt.setString(3, name);
+            deleteStmt.setString(4, name);
+            deleteStmt.executeUpdate();
+
+            PreparedStatement upsertStmt = session.prepare(upsertWaypointSql);
+            setUuid(upsertStmt, 1, uuid);
+            upsertStmt.setString(3, name);
+            upsertStmt.setInt(4, worldId(session, worldName));
+            upsertStmt.setDouble(5, x);
+            upsertStmt.setDouble(6, y);
+            upsertStmt.setDouble(7, z);
+            upsertStmt.executeUpdate();
+
+            deleteLegacy(session, "DELETE FROM player_waypoints WHERE uuid = ? AND LOWER(name) = LOWER(?)", uuid, name);
+        });
+    }
+
+    @Override
+    public void deleteWaypoint(UUID uuid, String name) {
+        writeQueue.enqueue(waypointKey(uuid, name), session -> {
+            PreparedStatement stmt = session.prepare(
+                    "DELETE FROM titleinfo_waypoints WHERE uuid_msb = ? AND uuid_lsb = ? AND LOWER(name) = LOWER(?)");
+            setUuid(stmt, 1, uuid);
+            stmt.setString(3, name);
+            stmt.executeUpdate();
+
+            deleteLegacy(session, "DELETE FROM player_waypoints WHERE uuid = ? AND LOWER(name) = LOWER(?)", uuid, name);
+        });
+    }
+
+    private static WriteBehindQueue.Key waypointKey(UUID uuid, String name) {
+        return new WriteBehindQueue.Key(uuid, "player_waypoints", name.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public List<Waypoint> getPlayerWaypoints(UUID uuid) {
+        DatabaseEvent event = DatabaseEvent.start("get_waypoints", "read");
+        long start = System.nanoTime();
+        int rows = -1;
+        try (SqlSession session = pool.reader()) {
+            List<Waypoint> waypoints = readPlayerWaypoints(session, uuid);
+            rows = waypoints.size();
+            return waypoints;
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to get waypoints for " + uuid + ": " + e.getMessage());
+        } finally {
+            waypointsQueryTime.record(System.nanoTime() - start);
+            event.finish(rows, rows >= 0);
+        }
+
+        return new ArrayList<>();
+    }
+
+    private List<Waypoint> readPlayerWaypoints(SqlSession session, UUID uuid) throws SQLException {
+        // Keyed by case-folded name, rows already moved to the compact table win over old ones
+        Map<String, Waypoint> waypoints = new LinkedHashMap<>();
+        migrator.lockShared();
+        try {
+            if (migrator.isPending(COMPACT_VERSION)) {
+                for (Waypoint waypoint : readLegacyWaypoints(session, uuid)) {
+                    waypoints.put(waypoint.getName().toLowerCase(Locale.ROOT), waypoint);
                 }
-                insertStmt.executeBatch();
             }
+        } finally {
+            migrator.unlockShared();
+        }
+
+        PreparedStatement stmt = session.prepare("SELECT p.name, p.world_id, w.name AS world, p.x, p.y, p.z " +
+                "FROM titleinfo_waypoints p JOIN titleinfo_worlds w ON w.id = p.world_id " +
+                "WHERE p.uuid_msb = ? AND p.uuid_lsb = ?");
+        setUuid(stmt, 1, uuid);
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String worldName = rs.getString("world");
+                worldIds.putIfAbsent(worldName, rs.getInt("world_id"));
+                Waypoint waypoint = toWaypoint(rs.getString("name"), worldName, rs);
+                if (waypoint != null) waypoints.put(waypoint.getName().toLowerCase(Locale.ROOT), waypoint);
+            }
+        }
+        return new ArrayList<>(waypoints.values());
+    }
 
+    @Override
+    public WaypointPage getWaypointPage(UUID uuid, Location origin, int offset, int limit) {
+        DatabaseEvent event = DatabaseEvent.start("get_waypoint_page", "read");
+        long start = System.nanoTime();
+        int rows = -1;
+        try (SqlSession session = pool.reader()) {
+            WaypointPage page = readWaypointPage(session, uuid, origin, offset, limit);
+            rows = page.waypoints().size();
+            return page;
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to save waypoints for " + uuid + ": " + e.getMessage());
+            plugin.getLogger().severe("Failed to get waypoints for " + uuid + ": " + e.getMessage());
+        } finally {
+            waypointsQueryTime.record(System.nanoTime() - start);
+            event.finish(rows, rows >= 0);
         }
+
+        return new WaypointPage(new ArrayList<>(), 0);
     }
 
-    public List<Waypoint> getPlayerWaypoints(UUID uuid) {
+    private WaypointPage readWaypointPage(SqlSession session, UUID uuid, Location origin, int offset, int limit) throws SQLException {
+        boolean legacyPending;
+        migrator.lockShared();
+        try {
+            legacyPending = migrator.isPending(COMPACT_VERSION);
+        } finally {
+            migrator.unlockShared();
+        }
+        if (legacyPending) {
+            // Rows may still sit in the old tables, page over the merged list instead
+            List<Waypoint> sorted = WaypointBook.sort(readPlayerWaypoints(session, uuid), origin);
+            int from = Math.min(offset, sorted.size());
+            return new WaypointPage(new ArrayList<>(sorted.subList(from, Math.min(sorted.size(), from + limit))), sorted.size());
+        }
+
+        // Waypoints in worlds that are not loaded cannot be shown, leave them out of the count and the pages
+        List<String> worlds = new ArrayList<>();
+        for (World world : plugin.getServer().getWorlds()) worlds.add(world.getName());
+        if (worlds.isEmpty()) return new WaypointPage(new ArrayList<>(), 0);
+        String where = "WHERE p.uuid_msb = ? AND p.uuid_lsb = ? AND w.name IN (" + String.join(", ", Collections.nCopies(worlds.size(), "?")) + ")";
+
+        int total = 0;
+        PreparedStatement count = session.prepare("SELECT COUNT(*) " +
+                "FROM titleinfo_waypoints p JOIN titleinfo_worlds w ON w.id = p.world_id " + where);
+        setUuid(count, 1, uuid);
+        for (int i = 0; i < worlds.size(); i++) count.setString(3 + i, worlds.get(i));
+        try (ResultSet rs = count.executeQuery()) {
+            if (rs.next()) total = rs.getInt(1);
+        }
+        if (total == 0 || offset >= total) return new WaypointPage(new ArrayList<>(), total);
+
+        // Same order as WaypointBook.sort: this world by squared distance, then everything else by name.
+        // Matched by name, the id of a world first saved here is only cached once it is read back
+        String order = origin == null ? "LOWER(p.name)" :
+                "CASE WHEN w.name = ? THEN 0 ELSE 1 END, " +
+                "CASE WHEN w.name = ? THEN (p.x - ?) * (p.x - ?) + (p.y - ?) * (p.y - ?) + (p.z - ?) * (p.z - ?) ELSE 0 END, LOWER(p.name)";
+        PreparedStatement stmt = session.prepare("SELECT p.name, p.world_id, w.name AS world, p.x, p.y, p.z " +
+                "FROM titleinfo_waypoints p JOIN titleinfo_worlds w ON w.id = p.world_id " +
+                where + " ORDER BY " + order + " LIMIT ? OFFSET ?");
+        setUuid(stmt, 1, uuid);
+        int index = 3;
+        for (String world : worlds) stmt.setString(index++, world);
+        if (origin != null) {
+            String world = origin.getWorld().getName();
+            stmt.setString(index++, world);
+            stmt.setString(index++, world);
+            for (double coordinate : new double[]{origin.getX(), origin.getY(), origin.getZ()}) {
+                stmt.setDouble(index++, coordinate);
+                stmt.setDouble(index++, coordinate);
+            }
+        }
+        stmt.setInt(index++, limit);
+        stmt.setInt(index, offset);
+
         List<Waypoint> waypoints = new ArrayList<>();
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT name, world, x, y, z FROM player_waypoints WHERE uuid = ?")) {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Waypoint waypoint = toWaypoint(rs.getString("name"), rs.getString("world"), rs);
+                if (waypoint != null) waypoints.add(waypoint);
+            }
+        }
+        return new WaypointPage(waypoints, total);
+    }
+
+    private Waypoint toWaypoint(String name, String worldName, ResultSet rs) throws SQLException {
+        World world = plugin.getServer().getWorld(worldName);
+        if (world == null) return null;
+        return new Waypoint(name, new Location(world, rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z")));
+    }
+
+    // -------------------- Public Waypoints --------------------
+    @Override
+    public void savePublicWaypoint(Waypoint waypoint) {
+        String name = waypoint.getName();
+        String nameKey = name.toLowerCase(Locale.ROOT);
+        Location loc = waypoint.getLocation();
+        String worldName = loc.getWorld().getName();
+        double x = loc.getX(), y = loc.getY(), z = loc.getZ();
+
+        writeQueue.enqueue(new WriteBehindQueue.Key(null, "public_waypoints", nameKey), session -> {
+            PreparedStatement stmt = session.prepare(upsertPublicSql);
+            stmt.setString(1, nameKey);
+            stmt.setString(2, name);
+            stmt.setInt(3, worldId(session, worldName));
+            stmt.setDouble(4, x);
+            stmt.setDouble(5, y);
+            stmt.setDouble(6, z);
+            stmt.executeUpdate();
+        });
+    }
+
+    @Override
+    public void deletePublicWaypoint(String name) {
+        String nameKey = name.toLowerCase(Locale.ROOT);
+        writeQueue.enqueue(new WriteBehindQueue.Key(null, "public_waypoints", nameKey), session -> {
+            PreparedStatement stmt = session.prepare("DELETE FROM titleinfo_public_waypoints WHERE name_key = ?");
+            stmt.setString(1, nameKey);
+            stmt.executeUpdate();
+        });
+    }
 
-            stmt.setString(1, uuid.toString());
+    @Override
+    public List<Waypoint> getPublicWaypoints() {
+        List<Waypoint> waypoints = new ArrayList<>();
+        DatabaseEvent event = DatabaseEvent.start("get_public_waypoints", "read");
+        boolean succeeded = false;
+        try (SqlSession session = pool.reader()) {
+            PreparedStatement stmt = session.prepare("SELECT p.name, p.world_id, w.name AS world, p.x, p.y, p.z " +
+                    "FROM titleinfo_public_waypoints p JOIN titleinfo_worlds w ON w.id = p.world_id");
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String name = rs.getString("name");
-                    String worldName = rs.getString("world");
-                    double x = rs.getDouble("x");
-                    double y = rs.getDouble("y");
-                    double z = rs.getDouble("z");
-                    World world = plugin.getServer().getWorld(worldName);
-                    if (world != null) {
-                        waypoints.add(new Waypoint(name, new Location(world, x, y, z)));
-                    }
+                    Waypoint waypoint = toWaypoint(rs.getString("name"), rs.getString("world"), rs);
+                    if (waypoint != null) waypoints.add(waypoint);
                 }
             }
-
+            succeeded = true;
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to get waypoints for " + uuid + ": " + e.getMessage());
+            plugin.getLogger().severe("Failed to load public waypoints: " + e.getMessage());
+        } finally {
+            event.finish(waypoints.size(), succeeded);
         }
-
         return waypoints;
     }
 
     // -------------------- Active Waypoint --------------------
+    @Override
     public void saveActiveWaypointName(UUID uuid, String activeName) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT OR REPLACE INTO active_waypoints (uuid, active_name) VALUES (?, ?)")) {
-
-            stmt.setString(1, uuid.toString());
-            stmt.setString(2, activeName);
+        writeQueue.enqueue(new WriteBehindQueue.Key(uuid, "active_waypoints", ""), session -> {
+            PreparedStatement stmt = session.prepare(upsertActiveSql);
+            setUuid(stmt, 1, uuid);
+            stmt.setString(3, activeName);
             stmt.executeUpdate();
 
+            deleteLegacy(session, "DELETE FROM active_waypoints WHERE uuid = ?", uuid, null);
+        });
+    }
+
+    @Override
+    public String getActiveWaypointName(UUID uuid) {
+        DatabaseEvent event = DatabaseEvent.start("get_active_waypoint", "read");
+        long start = System.nanoTime();
+        String name = null;
+        boolean succeeded = false;
+        try (SqlSession session = pool.reader()) {
+            name = readActiveWaypointName(session, uuid);
+            succeeded = true;
+            return name;
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to save active waypoint for " + uuid + ": " + e.getMessage());
+            plugin.getLogger().severe("Failed to get active waypoint for " + uuid + ": " + e.getMessage());
+        } finally {
+            activeQueryTime.record(System.nanoTime() - start);
+            event.finish(name != null ? 1 : 0, succeeded);
         }
+
+        return null;
     }
 
-    public String getActiveWaypointName(UUID uuid) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT active_name FROM active_waypoints WHERE uuid = ?")) {
+    private String readActiveWaypointName(SqlSession session, UUID uuid) throws SQLException {
+        String legacy = null;
+        migrator.lockShared();
+        try {
+            if (migrator.isPending(COMPACT_VERSION)) legacy = readLegacyActive(session, uuid);
+        } finally {
+            migrator.unlockShared();
+        }
+
+        PreparedStatement stmt = session.prepare("SELECT active_name FROM titleinfo_active WHERE uuid_msb = ? AND uuid_lsb = ?");
+        setUuid(stmt, 1, uuid);
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) return rs.getString("active_name");
+        }
+        return legacy;
+    }
+
+    // -------------------- Load Player Data --------------------
+    /**
+     * Reads everything stored for one player on a single read connection. Blocking, call it off the main thread.
+     */
+    @Override
+    public PlayerData loadPlayerData(UUID uuid) {
+        WaypointBook book = new WaypointBook();
+        Set<String> prefs = null;
+        long version = 0;
+
+        DatabaseEvent event = DatabaseEvent.start("load_player_data", "read");
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try (SqlSession session = pool.reader()) {
+            // Read first, a change committed while loading then shows up as a newer version later on
+            if (syncEnabled) version = readPlayerVersion(session, uuid);
+            prefs = readPlayerDisplayPrefs(session, uuid);
+            readPlayerWaypoints(session, uuid).forEach(book::put);
+            String activeName = readActiveWaypointName(session, uuid);
+            if (activeName != null) book.setActive(book.get(activeName));
+            succeeded = true;
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to load data for " + uuid + ": " + e.getMessage());
+        } finally {
+            loadQueryTime.record(System.nanoTime() - start);
+            event.finish(book.size(), succeeded);
+        }
+
+        return new PlayerData(prefs, book, version);
+    }
+
+    // -------------------- Multi-server Sync --------------------
+    @Override
+    public boolean isSyncEnabled() {
+        return syncEnabled;
+    }
+
+    @Override
+    public long getPlayerVersion(UUID uuid) {
+        DatabaseEvent event = DatabaseEvent.start("get_player_version", "read");
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try (SqlSession session = pool.reader()) {
+            long version = readPlayerVersion(session, uuid);
+            succeeded = true;
+            return version;
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to get data version for " + uuid + ": " + e.getMessage());
+        } finally {
+            versionQueryTime.record(System.nanoTime() - start);
+            event.finish(succeeded ? 1 : 0, succeeded);
+        }
+
+        return 0;
+    }
 
-            stmt.setString(1, uuid.toString());
+    private long readPlayerVersion(SqlSession session, UUID uuid) throws SQLException {
+        PreparedStatement stmt = session.prepare("SELECT version FROM titleinfo_versions WHERE uuid_msb = ? AND uuid_lsb = ?");
+        setUuid(stmt, 1, uuid);
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) return rs.getLong("version");
+        }
+        return 0;
+    }
+
+    @Override
+    public List<Change> pollChanges(long afterId, int limit) {
+        List<Change> changes = new ArrayList<>();
+        DatabaseEvent event = DatabaseEvent.start("poll_changes", "read");
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try (SqlSession session = pool.reader()) {
+            PreparedStatement stmt = session.prepare("SELECT id, uuid_msb, uuid_lsb FROM titleinfo_changes " +
+                    "WHERE id > ? AND server <> ? ORDER BY id LIMIT ?");
+            stmt.setLong(1, afterId);
+            stmt.setString(2, serverId);
+            stmt.setInt(3, limit);
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) return rs.getString("active_name");
+                while (rs.next()) {
+                    changes.add(new Change(rs.getLong("id"), new UUID(rs.getLong("uuid_msb"), rs.getLong("uuid_lsb"))));
+                }
             }
+            succeeded = true;
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to read changes from other servers: " + e.getMessage());
+        } finally {
+            changesQueryTime.record(System.nanoTime() - start);
+            event.finish(changes.size(), succeeded);
+        }
+        return changes;
+    }
 
+    @Override
+    public long getLatestChangeId() {
+        try (SqlSession session = pool.reader()) {
+            PreparedStatement stmt = session.prepare("SELECT MAX(id) FROM titleinfo_changes");
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) return rs.getLong(1);
+            }
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to get active waypoint for " + uuid + ": " + e.getMessage());
+            plugin.getLogger().severe("Failed to read the change log: " + e.getMessage());
         }
+        return 0;
+    }
+
+    @Override
+    public void pruneChanges(long olderThan) {
+        DatabaseEvent event = DatabaseEvent.start("prune_changes", "maintenance");
+        int rows = -1;
+        try (SqlSession session = pool.writer()) {
+            PreparedStatement stmt = session.prepare("DELETE FROM titleinfo_changes WHERE changed_at < ?");
+            stmt.setLong(1, olderThan);
+            rows = stmt.executeUpdate();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to prune the change log: " + e.getMessage());
+        } finally {
+            event.finish(rows, rows >= 0);
+        }
+    }
 
+    @Override
+    public void setCommitListener(BiConsumer<UUID, Long> listener) {
+        this.commitListener = listener;
+    }
+
+    /**
+     * Gives every player touched by a batch a new version stamp and logs the change for other servers,
+     * in the same transaction as the writes themselves.
+     */
+    private class VersionStamper implements WriteBehindQueue.CommitListener {
+
+        // Only used by the writer, which commits one batch at a time
+        private final Map<UUID, Long> stamps = new HashMap<>();
+        private final String upsertVersionSql = dialect.upsert("titleinfo_versions",
+                new String[]{"uuid_msb", "uuid_lsb"}, new String[]{"version"});
+
+        @Override
+        public void beforeCommit(SqlSession session, Set<UUID> players) throws SQLException {
+            stamps.clear();
+            long now = System.currentTimeMillis();
+            PreparedStatement version = session.prepare(upsertVersionSql);
+            PreparedStatement change = session.prepare(
+                    "INSERT INTO titleinfo_changes (uuid_msb, uuid_lsb, server, changed_at) VALUES (?, ?, ?, ?)");
+
+            for (UUID uuid : players) {
+                long stamp;
+                do {
+                    stamp = ThreadLocalRandom.current().nextLong();
+                } while (stamp == 0);
+                stamps.put(uuid, stamp);
+
+                setUuid(version, 1, uuid);
+                version.setLong(3, stamp);
+                version.executeUpdate();
+
+                setUuid(change, 1, uuid);
+                change.setString(3, serverId);
+                change.setLong(4, now);
+                change.executeUpdate();
+            }
+        }
+
+        @Override
+        public void afterCommit(Set<UUID> players) {
+            BiConsumer<UUID, Long> listener = commitListener;
+            if (listener != null) stamps.forEach(listener);
+        }
+    }
+
+    // -------------------- Legacy Schema --------------------
+    // While the background migration runs, rows not moved yet are still read from the version 1 tables.
+    // Reads are ordered old tables first, so a row moved in between is seen in the compact table instead.
+
+    private Set<String> readLegacyPrefs(SqlSession session, UUID uuid) throws SQLException {
+        PreparedStatement stmt = session.prepare("SELECT prefs FROM player_prefs WHERE uuid = ?");
+        stmt.setString(1, uuid.toString());
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) return DisplayOption.fromMask(DisplayOption.toMask(Arrays.asList(rs.getString("prefs").split(","))));
+        }
+        return null;
+    }
+
+    private List<Waypoint> readLegacyWaypoints(SqlSession session, UUID uuid) throws SQLException {
+        List<Waypoint> waypoints = new ArrayList<>();
+        PreparedStatement stmt = session.prepare("SELECT name, world, x, y, z FROM player_waypoints WHERE uuid = ?");
+        stmt.setString(1, uuid.toString());
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Waypoint waypoint = toWaypoint(rs.getString("name"), rs.getString("world"), rs);
+                if (waypoint != null) waypoints.add(waypoint);
+            }
+        }
+        return waypoints;
+    }
+
+    private String readLegacyActive(SqlSession session, UUID uuid) throws SQLException {
+        PreparedStatement stmt = session.prepare("SELECT active_name FROM active_waypoints WHERE uuid = ?");
+        stmt.setString(1, uuid.toString());
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) return rs.getString("active_name");
+        }
         return null;
     }
 
-    // -------------------- Load All Data --------------------
-    public void loadAllData(Map<UUID, Set<String>> playerDisplayPrefs,
-                            Map<UUID, List<Waypoint>> playerWaypoints,
-                            Map<UUID, String> activeWaypointNames) {
+    /**
+     * Removes a player's row from an old table, so the migration cannot bring back a value that was changed since.
+     */
+    private void deleteLegacy(SqlSession session, String sql, UUID uuid, String name) throws SQLException {
+        // No shared lock here: a write racing the table drop fails its batch and is retried afterwards,
+        // while holding the lock across the transaction could deadlock with the drop on networked databases
+        if (!migrator.isPending(COMPACT_VERSION)) return;
+
+        PreparedStatement stmt = session.prepare(sql);
+        stmt.setString(1, uuid.toString());
+        if (name != null) stmt.setString(2, name);
+        stmt.executeUpdate();
+    }
+
+    /**
+     * Moves rows from the version 1 tables into the compact ones, one table after the other.
+     * Each batch deletes the rows it copied in the same transaction, so it can resume after a restart.
+     */
+    private class LegacyMigration implements SchemaMigrator.BackgroundStep {
+
+        @Override
+        public int migrateBatch(SqlSession session, int limit) throws SQLException {
+            int moved = movePrefs(session, limit);
+            if (moved == 0) moved = moveWaypoints(session, limit);
+            if (moved == 0) moved = moveActive(session, limit);
+            return moved;
+        }
 
-        try (Connection conn = dataSource.getConnection()) {
+        private int movePrefs(SqlSession session, int limit) throws SQLException {
+            List<String[]> rows = selectRows(session, "SELECT uuid, prefs FROM player_prefs LIMIT ?", limit, 2);
 
-            // Load display prefs
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT uuid, prefs FROM player_prefs")) {
+            PreparedStatement insert = session.prepare(dialect.insertIgnore("titleinfo_prefs", "uuid_msb", "uuid_lsb", "prefs"));
+            for (String[] row : rows) {
+                UUID uuid = parseUuid(row[0]);
+                if (uuid != null) {
+                    setUuid(insert, 1, uuid);
+                    insert.setInt(3, DisplayOption.toMask(Arrays.asList(row[1].split(","))));
+                    insert.executeUpdate();
+                }
+                deleteRow(session, "player_prefs", row[0], null);
+            }
+            return rows.size();
+        }
+
+        private int moveWaypoints(SqlSession session, int limit) throws SQLException {
+            List<Object[]> rows = new ArrayList<>();
+            PreparedStatement select = session.prepare("SELECT uuid, name, world, x, y, z FROM player_waypoints LIMIT ?");
+            select.setInt(1, limit);
+            try (ResultSet rs = select.executeQuery()) {
                 while (rs.next()) {
-                    UUID uuid = UUID.fromString(rs.getString("uuid"));
-                    String prefsString = rs.getString("prefs");
-                    playerDisplayPrefs.put(uuid, new HashSet<>(Arrays.asList(prefsString.split(","))));
+                    rows.add(new Object[]{rs.getString("uuid"), rs.getString("name"), rs.getString("world"),
+                            rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z")});
                 }
             }
 
-            // Load waypoints
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT uuid, name, world, x, y, z FROM player_waypoints")) {
+            PreparedStatement exists = session.prepare(
+                    "SELECT 1 FROM titleinfo_waypoints WHERE uuid_msb = ? AND uuid_lsb = ? AND LOWER(name) = LOWER(?)");
+            PreparedStatement insert = session.prepare(dialect.insertIgnore("titleinfo_waypoints",
+                    "uuid_msb", "uuid_lsb", "name", "world_id", "x", "y", "z"));
+            for (Object[] row : rows) {
+                String uuidString = (String) row[0], name = (String) row[1], worldName = (String) row[2];
+                UUID uuid = parseUuid(uuidString);
+                if (uuid != null && name != null && worldName != null) {
+                    setUuid(exists, 1, uuid);
+                    exists.setString(3, name);
+                    boolean replaced;
+                    try (ResultSet rs = exists.executeQuery()) {
+                        replaced = rs.next();
+                    }
 
-                while (rs.next()) {
-                    UUID uuid = UUID.fromString(rs.getString("uuid"));
-                    String name = rs.getString("name");
-                    String worldName = rs.getString("world");
-                    double x = rs.getDouble("x");
-                    double y = rs.getDouble("y");
-                    double z = rs.getDouble("z");
-                    World world = plugin.getServer().getWorld(worldName);
-                    if (world != null) {
-                        playerWaypoints.computeIfAbsent(uuid, k -> new ArrayList<>())
-                                .add(new Waypoint(name, new Location(world, x, y, z)));
+                    // A waypoint saved since the migration started is newer, keep it
+                    if (!replaced) {
+                        setUuid(insert, 1, uuid);
+                        insert.setString(3, name);
+                        insert.setInt(4, worldId(session, worldName));
+                        insert.setDouble(5, (Double) row[3]);
+                        insert.setDouble(6, (Double) row[4]);
+                        insert.setDouble(7, (Double) row[5]);
+                        insert.executeUpdate();
                     }
                 }
+                deleteRow(session, "player_waypoints", uuidString, name);
             }
+            return rows.size();
+        }
+
+        private int moveActive(SqlSession session, int limit) throws SQLException {
+            List<String[]> rows = selectRows(session, "SELECT uuid, active_name FROM active_waypoints LIMIT ?", limit, 2);
 
-            // Load active waypoints
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT uuid, active_name FROM active_waypoints")) {
+            PreparedStatement insert = session.prepare(dialect.insertIgnore("titleinfo_active", "uuid_msb", "uuid_lsb", "active_name"));
+            for (String[] row : rows) {
+                UUID uuid = parseUuid(row[0]);
+                if (uuid != null) {
+                    setUuid(insert, 1, uuid);
+                    insert.setString(3, row[1]);
+                    insert.executeUpdate();
+                }
+                deleteRow(session, "active_waypoints", row[0], null);
+            }
+            return rows.size();
+        }
+
+        private List<String[]> selectRows(SqlSession session, String sql, int limit, int columns) throws SQLException {
+            List<String[]> rows = new ArrayList<>();
+            PreparedStatement stmt = session.prepare(sql);
+            stmt.setInt(1, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    UUID uuid = UUID.fromString(rs.getString("uuid"));
-                    String activeName = rs.getString("active_name");
-                    activeWaypointNames.put(uuid, activeName);
+                    String[] row = new String[columns];
+                    for (int i = 0; i < columns; i++) row[i] = rs.getString(i + 1);
+                    rows.add(row);
                 }
             }
+            return rows;
+        }
 
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to load data from database: " + e.getMessage());
+        /**
+         * Deletes a moved row by key. SQLite allows NULL in text primary keys, which {@code = ?} never matches.
+         */
+        private void deleteRow(SqlSession session, String table, String uuid, String name) throws SQLException {
+            StringBuilder sql = new StringBuilder("DELETE FROM ").append(table)
+                    .append(uuid == null ? " WHERE uuid IS NULL" : " WHERE uuid = ?");
+            if (table.equals("player_waypoints")) sql.append(name == null ? " AND name IS NULL" : " AND name = ?");
+
+            PreparedStatement stmt = session.prepare(sql.toString());
+            int index = 1;
+            if (uuid != null) stmt.setString(index++, uuid);
+            if (name != null) stmt.setString(index, name);
+            stmt.executeUpdate();
+        }
+
+        private UUID parseUuid(String value) {
+            try {
+                return UUID.fromString(value);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                plugin.getLogger().warning("Dropping stored data with invalid player id '" + value + "'.");
+                return null;
+            }
+        }
+
+        @Override
+        public void finish(SqlSession session) throws SQLException {
+            try (Statement stmt = session.getConnection().createStatement()) {
+                stmt.executeUpdate("DROP TABLE IF EXISTS player_prefs");
+                stmt.executeUpdate("DROP TABLE IF EXISTS player_waypoints");
+                stmt.executeUpdate("DROP TABLE IF EXISTS active_waypoints");
+            }
+        }
+
+        @Override
+        public void compact(Statement stmt) throws SQLException {
+            // Dropped pages are only returned to the file system by rebuilding the file
+            if (dialect == SqlDialect.SQLITE && storage.vacuum()) {
+                stmt.executeUpdate("VACUUM");
+            }
         }
     }
 
     // -------------------- Close --------------------
+    @Override
     public void close() {
-        if (dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
-        }
+        migrator.close();
+        writeQueue.close();
+        pool.close();
     }
 }
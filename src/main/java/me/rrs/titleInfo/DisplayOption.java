@@ -0,0 +1,84 @@
+package me.rrs.titleInfo;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Action bar segments a player can toggle, each backed by one bit of a compiled render mask.
+ * <p>
+ * Masks are also what the database stores, so new options must only ever be added at the end.
+ */
+public enum DisplayOption {
+    COORDINATES("coordinates"),
+    DIRECTION("direction"),
+    TIME("time"),
+    BIOME("biome"),
+    WAYPOINT("waypoint"),
+    NEAREST("nearest");
+
+    private static final DisplayOption[] VALUES = values();
+
+    private final String key;
+    private final int bit;
+
+    DisplayOption(String key) {
+        this.key = key;
+        this.bit = 1 << ordinal();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    public boolean isIn(int mask) {
+        return (mask & bit) != 0;
+    }
+
+    public static DisplayOption fromKey(String key) {
+        for (DisplayOption option : VALUES) {
+            if (option.key.equalsIgnoreCase(key)) return option;
+        }
+        return null;
+    }
+
+    /**
+     * Compiles a set of option keys into a mask, ignoring unknown keys.
+     */
+    public static int toMask(Collection<String> keys) {
+        int mask = 0;
+        for (String key : keys) {
+            DisplayOption option = fromKey(key);
+            if (option != null) mask |= option.bit;
+        }
+        return mask;
+    }
+
+    /**
+     * Expands a mask back into option keys, ignoring bits of unknown options.
+     */
+    public static Set<String> fromMask(int mask) {
+        Set<String> keys = new HashSet<>();
+        for (DisplayOption option : VALUES) {
+            if (option.isIn(mask)) keys.add(option.key);
+        }
+        return keys;
+    }
+
+    /**
+     * Mask of the options enabled server-wide under {@code display_options}.
+     */
+    public static int serverMask(YamlDocument config) {
+        int mask = 0;
+        for (DisplayOption option : VALUES) {
+            if (config.getBoolean("display_options." + option.key, false)) mask |= option.bit;
+        }
+        return mask;
+    }
+}
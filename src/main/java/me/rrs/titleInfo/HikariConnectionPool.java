@@ -0,0 +1,82 @@
+package me.rrs.titleInfo;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dev.dejvokep.boostedyaml.YamlDocument;
+
+import java.sql.SQLException;
+
+/**
+ * Pooled connections to a networked database server.
+ * <p>
+ * Tuned for round trips over the network rather than local file access: connections are kept
+ * alive and warm, borrowing fails fast instead of stalling, and MySQL-family drivers cache
+ * prepared statements on the connection so repeated queries skip the parse on the server.
+ */
+public class HikariConnectionPool implements ConnectionPool {
+
+    private final HikariDataSource dataSource;
+
+    public HikariConnectionPool(SqlDialect dialect, YamlDocument config) {
+        String url = config.getString("storage.network.url", "");
+        if (url == null || url.isBlank()) {
+            url = dialect.jdbcUrl(
+                    config.getString("storage.network.host", "localhost"),
+                    config.getInt("storage.network.port", dialect.getDefaultPort()),
+                    config.getString("storage.network.database", "titleinfo"));
+        }
+
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName("TitleInfo-" + dialect.name());
+        hikari.setJdbcUrl(url);
+        if (url.startsWith("jdbc:" + dialect.name().toLowerCase())) hikari.setDriverClassName(dialect.getDriverClass());
+        hikari.setUsername(config.getString("storage.network.username", "root"));
+        hikari.setPassword(config.getString("storage.network.password", ""));
+
+        hikari.setMaximumPoolSize(config.getInt("storage.network.pool.max_size", 8));
+        hikari.setMinimumIdle(config.getInt("storage.network.pool.min_idle", 2));
+        hikari.setConnectionTimeout(config.getLong("storage.network.pool.connection_timeout_ms", 10000L));
+        hikari.setMaxLifetime(config.getLong("storage.network.pool.max_lifetime_ms", 1800000L));
+        hikari.setKeepaliveTime(config.getLong("storage.network.pool.keepalive_ms", 60000L));
+
+        if (dialect == SqlDialect.MYSQL || dialect == SqlDialect.MARIADB) {
+            hikari.addDataSourceProperty("cachePrepStmts", "true");
+            hikari.addDataSourceProperty("prepStmtCacheSize", "64");
+            hikari.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            hikari.addDataSourceProperty("useServerPrepStmts", "true");
+            hikari.addDataSourceProperty("rewriteBatchedStatements", "true");
+        } else if (dialect == SqlDialect.POSTGRESQL) {
+            hikari.addDataSourceProperty("prepareThreshold", "1");
+        }
+
+        this.dataSource = new HikariDataSource(hikari);
+    }
+
+    @Override
+    public SqlSession writer() throws SQLException {
+        return borrow();
+    }
+
+    @Override
+    public SqlSession reader() throws SQLException {
+        return borrow();
+    }
+
+    private SqlSession borrow() throws SQLException {
+        // Closing the session closes its statements and returns the connection to Hikari
+        return new SqlSession(dataSource.getConnection(), SqlSession::closeConnection);
+    }
+
+    @Override
+    public Stats stats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) return new Stats(0, 0, 0);
+        return new Stats(pool.getActiveConnections(), pool.getTotalConnections(), pool.getThreadsAwaitingConnection());
+    }
+
+    @Override
+    public void close() {
+        if (!dataSource.isClosed()) dataSource.close();
+    }
+}
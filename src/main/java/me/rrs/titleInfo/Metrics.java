@@ -0,0 +1,285 @@
+package me.rrs.titleInfo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Counters, gauges and histograms for the plugin's hot paths.
+ * <p>
+ * Metrics are registered once at startup and held by the code that updates them, so recording a
+ * sample is a {@link LongAdder} increment without locks or allocation. Gauges are only evaluated
+ * when the metrics are read, by {@code /titleinfo admin stats} or the OpenMetrics endpoint.
+ */
+public final class Metrics {
+
+    /**
+     * Bucket bounds for latencies recorded in nanoseconds, from 1µs to 2.5s.
+     */
+    public static final long[] LATENCY_NANOS = {
+            1_000L, 2_500L, 5_000L, 10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L};
+
+    /**
+     * Bucket bounds for small counts, e.g. players per tick or rows per batch.
+     */
+    public static final long[] COUNTS = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 5000};
+
+    private static final double NANOS_TO_SECONDS = 1e-9;
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    private abstract static class Metric {
+        final String name;
+        final String help;
+        final String labels;
+
+        Metric(String name, String help, String[] labels) {
+            this.name = name;
+            this.help = help;
+            this.labels = formatLabels(labels);
+        }
+
+        abstract String type();
+
+        abstract void write(StringBuilder out);
+
+        abstract String describe();
+
+        String displayName() {
+            return labels.isEmpty() ? name : name + "{" + labels + "}";
+        }
+    }
+
+    public static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String help, String[] labels) {
+            super(name, help, labels);
+        }
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            sample(out, name + "_total", labels, null, get());
+        }
+
+        @Override
+        String describe() {
+            return displayName() + " = " + get();
+        }
+    }
+
+    private static final class Gauge extends Metric {
+        private final DoubleSupplier supplier;
+
+        private Gauge(String name, String help, DoubleSupplier supplier, String[] labels) {
+            super(name, help, labels);
+            this.supplier = supplier;
+        }
+
+        @Override
+        String type() {
+            return "gauge";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            sample(out, name, labels, null, supplier.getAsDouble());
+        }
+
+        @Override
+        String describe() {
+            return displayName() + " = " + formatNumber(supplier.getAsDouble());
+        }
+    }
+
+    /**
+     * Counts samples in fixed buckets; percentiles are estimated from the bucket bounds.
+     */
+    public static final class Histogram extends Metric {
+        private final long[] bounds;
+        private final LongAdder[] buckets;
+        private final LongAdder sum = new LongAdder();
+        private final double scale;
+
+        private Histogram(String name, String help, long[] bounds, double scale, String[] labels) {
+            super(name, help, labels);
+            this.bounds = bounds;
+            this.scale = scale;
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        public void record(long value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) i++;
+            buckets[i].increment();
+            sum.add(value);
+        }
+
+        public long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) count += bucket.sum();
+            return count;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile, in exported units; infinite if above the last bound.
+         */
+        public double quantile(double q) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) total += counts[i] = buckets[i].sum();
+            if (total == 0) return 0;
+
+            long rank = (long) Math.ceil(q * total), seen = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return bounds[i] * scale;
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+
+        public double mean() {
+            long count = count();
+            return count == 0 ? 0 : sum.sum() * scale / count;
+        }
+
+        @Override
+        String type() {
+            return "histogram";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            long cumulative = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulative += buckets[i].sum();
+                sample(out, name + "_bucket", labels, formatNumber(bounds[i] * scale), cumulative);
+            }
+            cumulative += buckets[bounds.length].sum();
+            sample(out, name + "_bucket", labels, "+Inf", cumulative);
+            sample(out, name + "_sum", labels, null, sum.sum() * scale);
+            sample(out, name + "_count", labels, null, cumulative);
+        }
+
+        @Override
+        String describe() {
+            long count = count();
+            if (count == 0) return displayName() + ": no samples";
+            return displayName() + ": n=" + count + " mean=" + formatValue(mean())
+                    + " p50<=" + formatValue(quantile(0.5)) + " p99<=" + formatValue(quantile(0.99));
+        }
+
+        private String formatValue(double value) {
+            if (scale != NANOS_TO_SECONDS) return formatNumber(value);
+            if (Double.isInfinite(value)) return "inf";
+            return String.format("%.3fms", value * 1000);
+        }
+    }
+
+    // -------------------- Registration --------------------
+
+    /**
+     * @param labels label names and values, alternating
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return register(new Counter(name, help, labels));
+    }
+
+    public void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        register(new Gauge(name, help, supplier, labels));
+    }
+
+    /**
+     * A histogram of durations recorded in nanoseconds and exported in seconds.
+     */
+    public Histogram timer(String name, String help, String... labels) {
+        return register(new Histogram(name, help, LATENCY_NANOS, NANOS_TO_SECONDS, labels));
+    }
+
+    public Histogram histogram(String name, String help, long[] bounds, String... labels) {
+        return register(new Histogram(name, help, bounds, 1, labels));
+    }
+
+    private <T extends Metric> T register(T metric) {
+        metrics.add(metric);
+        return metric;
+    }
+
+    // -------------------- Export --------------------
+
+    /**
+     * One line per metric, for players.
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Metric metric : metrics) lines.add(metric.describe());
+        return lines;
+    }
+
+    /**
+     * All metrics in the OpenMetrics text format.
+     */
+    public String toOpenMetrics() {
+        Map<String, List<Metric>> families = new LinkedHashMap<>();
+        for (Metric metric : metrics) families.computeIfAbsent(metric.name, k -> new ArrayList<>()).add(metric);
+
+        StringBuilder out = new StringBuilder(8192);
+        for (List<Metric> family : families.values()) {
+            Metric first = family.get(0);
+            out.append("# TYPE ").append(first.name).append(' ').append(first.type()).append('\n');
+            out.append("# HELP ").append(first.name).append(' ').append(first.help).append('\n');
+            for (Metric metric : family) metric.write(out);
+        }
+        return out.append("# EOF\n").toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String le, double value) {
+        out.append(name);
+        if (!labels.isEmpty() || le != null) {
+            out.append('{').append(labels);
+            if (le != null) out.append(labels.isEmpty() ? "" : ",").append("le=\"").append(le).append('"');
+            out.append('}');
+        }
+        out.append(' ').append(formatNumber(value)).append('\n');
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return Double.toString(value);
+    }
+
+    private static String formatLabels(String[] labels) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (!sb.isEmpty()) sb.append(',');
+            sb.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return sb.toString();
+    }
+}
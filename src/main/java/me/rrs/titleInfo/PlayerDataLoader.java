@@ -0,0 +1,231 @@
+package me.rrs.titleInfo;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import io.papermc.paper.connection.PlayerConfigurationConnection;
+import io.papermc.paper.connection.PlayerConnection;
+import io.papermc.paper.connection.PlayerLoginConnection;
+import io.papermc.paper.event.connection.PlayerConnectionValidateLoginEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps player data in memory only while it is needed.
+ * <p>
+ * Data is read from the database on the async pre-login thread and published to the caches when the
+ * player joins; if that read was skipped because the data was cached but it has been evicted since, it is
+ * loaded asynchronously after the join. The main thread never reads the database for a joining player.
+ * After a player quits, their data is dropped once their queued writes have been committed.
+ * Cache publication and eviction both happen on the global region (the main thread on Paper), and a
+ * player who is logging in is never evicted, so a quick rejoin cannot pick up data older than what is still queued.
+ * A login that is neither completed nor refused, e.g. because the client disconnected during it, is given up after
+ * {@value #LOGIN_TIMEOUT_MS} ms.
+ * <p>
+ * When several servers share the database, cached data is only kept on rejoin if no other server
+ * changed it in the meantime, and {@link CacheCoherence} reloads players changed elsewhere.
+ */
+public class PlayerDataLoader implements Listener {
+
+    // Longer than the server lets a login take
+    static final long LOGIN_TIMEOUT_MS = 60000;
+    private static final long SWEEP_INTERVAL_TICKS = 600L;
+
+    private final TitleInfo plugin;
+    private final Map<UUID, PreLogin> loggingIn = new ConcurrentHashMap<>();
+
+    /**
+     * A player past pre-login, with the data read for them unless it was cached.
+     */
+    private record PreLogin(long startedAt, PlayerStorage.PlayerData data) {
+        boolean isExpired(long now) {
+            return now - startedAt > TimeUnit.MILLISECONDS.toNanos(LOGIN_TIMEOUT_MS);
+        }
+    }
+
+    public PlayerDataLoader(TitleInfo plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        plugin.getTaskScheduler().runGlobalTimer(this::sweepLogins, SWEEP_INTERVAL_TICKS, SWEEP_INTERVAL_TICKS);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+        UUID uuid = event.getUniqueId();
+        // Marked before reading, so the data cannot be evicted while the read runs
+        loggingIn.put(uuid, new PreLogin(System.nanoTime(), null));
+
+        // Data still cached from a recent session may hold writes that are not flushed yet, keep using it
+        // unless another server has changed it since
+        if (!isCached(uuid) || plugin.getCoherence().isStale(uuid)) {
+            loggingIn.put(uuid, new PreLogin(System.nanoTime(), load(uuid)));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onValidateLogin(PlayerConnectionValidateLoginEvent event) {
+        if (event.isAllowed()) return;
+
+        UUID uuid = profileId(event.getConnection());
+        PreLogin login = uuid != null ? loggingIn.get(uuid) : null;
+        if (login != null) plugin.getTaskScheduler().runGlobal(() -> abandon(uuid, login));
+    }
+
+    private static UUID profileId(PlayerConnection connection) {
+        PlayerProfile profile = null;
+        if (connection instanceof PlayerLoginConnection login) profile = login.getAuthenticatedProfile();
+        else if (connection instanceof PlayerConfigurationConnection configuration) profile = configuration.getProfile();
+        return profile != null ? profile.getId() : null;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        PreLogin login = loggingIn.remove(uuid);
+        // Data read too long ago may be older than what this server or another one has written since
+        PlayerStorage.PlayerData data = login != null && !login.isExpired(System.nanoTime()) ? login.data() : null;
+        if (isCached(uuid) && (data == null || plugin.getDbManager().getWriteQueue().hasPending(uuid))) return;
+
+        if (data != null) publish(uuid, data);
+        // Pre-login found the data cached but it was evicted since, the database is up to date by now
+        else ensureLoaded(uuid);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        releaseIfOffline(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Loads the player's data into the caches if it is not there yet, e.g. for admin commands
+     * targeting an offline player. The returned future completes on the global region, or right away if cached.
+     */
+    public CompletableFuture<Void> ensureLoaded(UUID uuid) {
+        if (isCached(uuid)) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Void> loaded = new CompletableFuture<>();
+        plugin.getTaskScheduler().runAsync(() -> {
+            PlayerStorage.PlayerData data = load(uuid);
+            plugin.getTaskScheduler().runGlobal(() -> {
+                if (!isCached(uuid)) publish(uuid, data);
+                loaded.complete(null);
+            });
+        });
+        return loaded;
+    }
+
+    /**
+     * Reloads a cached player's data after another server changed it. If this server queued or committed
+     * a change for the player in the meantime, the loaded data may miss it, so the reload is deferred
+     * until the queued writes are committed.
+     */
+    public void refresh(UUID uuid) {
+        CacheCoherence coherence = plugin.getCoherence();
+        WriteBehindQueue writeQueue = plugin.getDbManager().getWriteQueue();
+        if (writeQueue.hasPending(uuid)) {
+            coherence.defer(uuid);
+            return;
+        }
+
+        long known = coherence.getKnownVersion(uuid);
+        plugin.getTaskScheduler().runAsync(() -> {
+            PlayerStorage.PlayerData data = load(uuid);
+            plugin.getTaskScheduler().runGlobal(() -> {
+                if (!isCached(uuid)) return;
+                if (writeQueue.hasPending(uuid) || coherence.getKnownVersion(uuid) != known) coherence.defer(uuid);
+                else publish(uuid, data);
+            });
+        });
+    }
+
+    /**
+     * Drops the player's data from the caches once their pending writes are committed,
+     * unless they are online or logging in again by then. Only the player's own writes are flushed, off the main thread.
+     */
+    public void releaseIfOffline(UUID uuid) {
+        plugin.getTaskScheduler().runAsync(() -> {
+            if (!plugin.getDbManager().getWriteQueue().flush(uuid)) {
+                plugin.getLogger().warning("Keeping data of " + uuid + " cached, pending writes could not be flushed.");
+                return;
+            }
+            plugin.getTaskScheduler().runGlobal(() -> {
+                if (Bukkit.getPlayer(uuid) != null || isLoggingIn(uuid)) return;
+                plugin.getSessions().remove(uuid);
+                plugin.getCoherence().forget(uuid);
+            });
+        });
+    }
+
+    private boolean isLoggingIn(UUID uuid) {
+        PreLogin login = loggingIn.get(uuid);
+        return login != null && !login.isExpired(System.nanoTime());
+    }
+
+    /**
+     * Gives up logins that were refused or never completed. Runs on the global region.
+     */
+    void sweepLogins() {
+        long now = System.nanoTime();
+        loggingIn.forEach((uuid, login) -> {
+            if (login.isExpired(now)) abandon(uuid, login);
+        });
+    }
+
+    private void abandon(UUID uuid, PreLogin login) {
+        // A newer login of the same player replaced the entry, it is still going
+        if (!loggingIn.remove(uuid, login) || Bukkit.getPlayer(uuid) != null) return;
+
+        // The player's last quit kept their cached data for this login
+        if (isCached(uuid)) releaseIfOffline(uuid);
+        else plugin.getCoherence().forget(uuid);
+    }
+
+    /**
+     * Synchronously loads players that are already online, e.g. after a plugin reload.
+     */
+    public void loadOnlinePlayers() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (!isCached(player.getUniqueId())) publish(player.getUniqueId(), load(player.getUniqueId()));
+        }
+    }
+
+    /**
+     * Whether the player's data is in the caches, in which case it is newer than the database.
+     */
+    public boolean isCached(UUID uuid) {
+        return plugin.getSessions().containsKey(uuid);
+    }
+
+    private PlayerStorage.PlayerData load(UUID uuid) {
+        PlayerStorage.PlayerData data = plugin.getDbManager().loadPlayerData(uuid);
+        if (data.displayPrefs() != null) return data;
+
+        // Enable default options if none exist
+        Set<String> prefs = DisplayOption.fromMask(plugin.getSettings().enabledMask());
+        plugin.getDbManager().savePlayerDisplayPrefs(uuid, prefs);
+        return new PlayerStorage.PlayerData(prefs, data.waypoints(), data.version());
+    }
+
+    private void publish(UUID uuid, PlayerStorage.PlayerData data) {
+        // A refresh updates the existing session in place, its render state stays valid to diff against
+        PlayerSession session = plugin.getSession(uuid);
+        if (session != null) session.replace(data);
+        else plugin.getSessions().put(uuid, new PlayerSession(uuid, data.displayPrefs(), data.waypoints()));
+        plugin.getCoherence().markLoaded(uuid, data.version());
+    }
+}
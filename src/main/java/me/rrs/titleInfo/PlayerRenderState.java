@@ -0,0 +1,206 @@
+package me.rrs.titleInfo;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Last rendered inputs and output of a player's action bar.
+ * <p>
+ * Each setter stores the new value and reports whether it differed from the previous one, so the
+ * renderer only rebuilds the message when something it displays has actually changed.
+ * <p>
+ * The state is split between two threads. The thread ticking the player captures snapshots and owns
+ * the biome cell cache; the thread rendering them owns everything else. With asynchronous rendering
+ * snapshots are handed over through {@link #offer} and {@link #poll}, which also guarantee that at most
+ * one render per player is in flight. {@link #invalidate()} may be called from any thread.
+ */
+final class PlayerRenderState {
+
+    private volatile boolean dirty = true;
+
+    // Compiled render plan: enabled DisplayOption bits, rebuilt only when prefs or config change
+    private int planMask;
+    private volatile boolean planStale = true;
+
+    // Scratch space for formatting slot values and timing them, per player so region threads never share it
+    final StringBuilder buffer = new StringBuilder(32);
+    final long[] segmentNanos = new long[DisplayOption.values().length];
+    private int sampleCountdown;
+
+    // Inputs
+    private World world;
+    private int blockX, blockY, blockZ;
+    private int yawOctant = -1;
+    private int minuteOfDay = -1;
+    private Biome biome;
+    private String biomeName;
+    private World biomeWorld;
+    private int biomeCellX, biomeCellY, biomeCellZ;
+    private Biome cellBiome;
+    private Waypoint waypoint;
+    private long waypointDistance = -1;
+    private int waypointOctant = -1;
+    private Waypoint nearest;
+    private long nearestDistance = -1;
+    private int nearestOctant = -1;
+
+    // Output
+    private Component lastMessage;
+    private int lastSentTick;
+
+    // Latest snapshot not rendered yet, and whether a render is queued or running
+    private final AtomicReference<RenderSnapshot> pending = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Forces the next refresh to recompile the render plan and re-render, e.g. after prefs or waypoints changed.
+     */
+    void invalidate() {
+        dirty = true;
+        planStale = true;
+    }
+
+    /**
+     * Whether this update should be timed, true for one in {@code rate} updates; never if {@code rate} is 0.
+     */
+    boolean shouldSample(int rate) {
+        if (rate <= 0 || --sampleCountdown > 0) return false;
+        sampleCountdown = rate;
+        return true;
+    }
+
+    boolean isPlanStale() {
+        return planStale;
+    }
+
+    int getPlanMask() {
+        return planMask;
+    }
+
+    void setPlanMask(int mask) {
+        this.planMask = mask;
+        this.planStale = false;
+    }
+
+    boolean consumeDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
+    boolean setPosition(World world, int x, int y, int z) {
+        if (world == this.world && x == blockX && y == blockY && z == blockZ) return false;
+        this.world = world;
+        this.blockX = x;
+        this.blockY = y;
+        this.blockZ = z;
+        return true;
+    }
+
+    boolean setYawOctant(int octant) {
+        if (octant == yawOctant) return false;
+        yawOctant = octant;
+        return true;
+    }
+
+    boolean setMinuteOfDay(int minute) {
+        if (minute == minuteOfDay) return false;
+        minuteOfDay = minute;
+        return true;
+    }
+
+    /**
+     * Biome at the block. Biomes are stored per 4x4x4 cell, so the world is only asked again once the
+     * block lies in a different cell than the last lookup. Capture thread only.
+     */
+    Biome lookupBiome(World world, int x, int y, int z) {
+        int cellX = x >> 2, cellY = y >> 2, cellZ = z >> 2;
+        if (world == biomeWorld && cellX == biomeCellX && cellY == biomeCellY && cellZ == biomeCellZ) return cellBiome;
+        this.biomeWorld = world;
+        this.biomeCellX = cellX;
+        this.biomeCellY = cellY;
+        this.biomeCellZ = cellZ;
+        this.cellBiome = world.getBiome(x, y, z);
+        return cellBiome;
+    }
+
+    boolean setBiome(Biome biome, BiomeNames names) {
+        if (biome == this.biome) return false;
+        this.biome = biome;
+        this.biomeName = names.get(biome);
+        return true;
+    }
+
+    /**
+     * @param distance rounded distance in blocks, or -1 when the waypoint is in another world
+     */
+    boolean setWaypoint(Waypoint waypoint, long distance, int octant) {
+        if (waypoint == this.waypoint && distance == waypointDistance && octant == waypointOctant) return false;
+        this.waypoint = waypoint;
+        this.waypointDistance = distance;
+        this.waypointOctant = octant;
+        return true;
+    }
+
+    /**
+     * @param nearest the closest public waypoint in the player's world, or {@code null} if there is none
+     */
+    boolean setNearest(Waypoint nearest, long distance, int octant) {
+        if (nearest == this.nearest && distance == nearestDistance && octant == nearestOctant) return false;
+        this.nearest = nearest;
+        this.nearestDistance = distance;
+        this.nearestOctant = octant;
+        return true;
+    }
+
+    int getBlockX() { return blockX; }
+    int getBlockY() { return blockY; }
+    int getBlockZ() { return blockZ; }
+    int getYawOctant() { return yawOctant; }
+    int getMinuteOfDay() { return minuteOfDay; }
+    String getBiomeName() { return biomeName; }
+    Waypoint getWaypoint() { return waypoint; }
+    long getWaypointDistance() { return waypointDistance; }
+    int getWaypointOctant() { return waypointOctant; }
+    Waypoint getNearest() { return nearest; }
+    long getNearestDistance() { return nearestDistance; }
+    int getNearestOctant() { return nearestOctant; }
+
+    Component getLastMessage() { return lastMessage; }
+    int getLastSentTick() { return lastSentTick; }
+
+    void markSent(Component message, int tick) {
+        this.lastMessage = message;
+        this.lastSentTick = tick;
+    }
+
+    // -------------------- Render hand-over --------------------
+
+    /**
+     * Replaces any snapshot still waiting to be rendered; only the latest one matters.
+     *
+     * @return whether the caller has to schedule a render, false if one is already queued or running
+     */
+    boolean offer(RenderSnapshot snapshot) {
+        pending.set(snapshot);
+        return scheduled.compareAndSet(false, true);
+    }
+
+    RenderSnapshot poll() {
+        return pending.getAndSet(null);
+    }
+
+    /**
+     * Ends the current render.
+     *
+     * @return whether a snapshot arrived meanwhile and the caller has to keep rendering
+     */
+    boolean finishRender() {
+        scheduled.set(false);
+        return pending.get() != null && scheduled.compareAndSet(false, true);
+    }
+}
@@ -0,0 +1,60 @@
+package me.rrs.titleInfo;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+/**
+ * Refreshes each player's action bar from a repeating task on the player's own entity scheduler.
+ * <p>
+ * Used on Folia instead of {@link ActionBarScheduler}: every player is rendered on the region thread
+ * that ticks them, so rendering is spread over the same cores as the rest of the server. Tasks are
+ * staggered across the refresh interval and end by themselves when the player quits. They check every
+ * tick whether a render is due, so a reloaded refresh interval applies to players already online.
+ */
+public class PlayerRenderTasks implements Listener {
+
+    private final TitleInfo plugin;
+    private final Title title;
+
+    public PlayerRenderTasks(TitleInfo plugin, Title title) {
+        this.plugin = plugin;
+        this.title = title;
+    }
+
+    /**
+     * Starts tasks for players who are already online, e.g. after a plugin reload.
+     */
+    public void startOnlinePlayers() {
+        for (Player player : Bukkit.getOnlinePlayers()) start(player);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        start(event.getPlayer());
+    }
+
+    private void start(Player player) {
+        plugin.getTaskScheduler().runAtTimer(player, new RenderTask(player), 1, 1);
+    }
+
+    private final class RenderTask implements Runnable {
+        private final Player player;
+        // Only touched on the player's region thread
+        private long tick;
+
+        private RenderTask(Player player) {
+            this.player = player;
+        }
+
+        @Override
+        public void run() {
+            int interval = plugin.getSettings().actionBar().refreshInterval();
+            if (Math.floorMod(tick++, interval) != Math.floorMod(player.getUniqueId().hashCode(), interval)) return;
+            title.updatePlayerInfo(player);
+        }
+    }
+}
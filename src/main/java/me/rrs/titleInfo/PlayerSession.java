@@ -0,0 +1,70 @@
+package me.rrs.titleInfo;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Everything held in memory for one player while their data is cached: display preferences, waypoints
+ * (with the active waypoint) and action bar render state, reached through a single map lookup.
+ * <p>
+ * Sessions are created and replaced by {@link PlayerDataLoader} on the global region and published through
+ * the concurrent session map, so a thread that finds a session sees it fully initialized. After that:
+ * <ul>
+ *     <li>display preferences are an immutable set, replaced as a whole with {@link #updateDisplayPrefs};</li>
+ *     <li>the waypoint book is swapped as a whole when another server changed the data, and is
+ *     itself safe to use from any thread;</li>
+ *     <li>the render state lives as long as the session and follows the rules of {@link PlayerRenderState}.</li>
+ * </ul>
+ */
+public final class PlayerSession {
+
+    private final UUID uuid;
+    private final AtomicReference<Set<String>> displayPrefs;
+    private volatile WaypointBook waypoints;
+    private final PlayerRenderState renderState = new PlayerRenderState();
+
+    public PlayerSession(UUID uuid, Set<String> displayPrefs, WaypointBook waypoints) {
+        this.uuid = uuid;
+        this.displayPrefs = new AtomicReference<>(Set.copyOf(displayPrefs));
+        this.waypoints = waypoints;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public Set<String> getDisplayPrefs() {
+        return displayPrefs.get();
+    }
+
+    public WaypointBook getWaypoints() {
+        return waypoints;
+    }
+
+    PlayerRenderState getRenderState() {
+        return renderState;
+    }
+
+    /**
+     * Replaces the display preferences with the result of applying {@code update} to a mutable copy of the current ones.
+     *
+     * @return the new preferences
+     */
+    public Set<String> updateDisplayPrefs(UnaryOperator<Set<String>> update) {
+        Set<String> prefs = displayPrefs.updateAndGet(current -> Set.copyOf(update.apply(new HashSet<>(current))));
+        renderState.invalidate();
+        return prefs;
+    }
+
+    /**
+     * Swaps in data reloaded from storage, keeping the render state so the action bar is diffed against what was last sent.
+     */
+    void replace(PlayerStorage.PlayerData data) {
+        waypoints = data.waypoints();
+        displayPrefs.set(Set.copyOf(data.displayPrefs()));
+        renderState.invalidate();
+    }
+}
@@ -0,0 +1,110 @@
+package me.rrs.titleInfo;
+
+import org.bukkit.Location;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Persistent storage for player display preferences and waypoints.
+ * <p>
+ * Saves are queued and committed in the background; reads block and should be done off the main thread.
+ */
+public interface PlayerStorage {
+
+    /**
+     * @param displayPrefs the enabled display options, or {@code null} if the player has none stored yet
+     * @param version      stamp of the last change to the player's data when it was read, see {@link #getPlayerVersion(UUID)}
+     */
+    record PlayerData(Set<String> displayPrefs, WaypointBook waypoints, long version) {
+    }
+
+    /**
+     * One page of a player's waypoints, with the number of waypoints they have in total. Both only cover loaded worlds.
+     */
+    record WaypointPage(List<Waypoint> waypoints, int total) {
+    }
+
+    /**
+     * An entry of the change log written when several servers share the storage.
+     */
+    record Change(long id, UUID uuid) {
+    }
+
+    void savePlayerDisplayPrefs(UUID uuid, Set<String> prefs);
+
+    Set<String> getPlayerDisplayPrefs(UUID uuid);
+
+    void saveWaypoint(UUID uuid, Waypoint waypoint);
+
+    void deleteWaypoint(UUID uuid, String name);
+
+    List<Waypoint> getPlayerWaypoints(UUID uuid);
+
+    /**
+     * Reads one page of a player's waypoints without loading the rest, in the order of
+     * {@link WaypointBook#sort(java.util.Collection, Location)}.
+     *
+     * @param origin where distances are measured from, or {@code null} to sort by name
+     */
+    WaypointPage getWaypointPage(UUID uuid, Location origin, int offset, int limit);
+
+    void saveActiveWaypointName(UUID uuid, String activeName);
+
+    String getActiveWaypointName(UUID uuid);
+
+    /**
+     * Reads everything stored for one player at once.
+     */
+    PlayerData loadPlayerData(UUID uuid);
+
+    WriteBehindQueue getWriteQueue();
+
+    // -------------------- Public waypoints --------------------
+
+    /**
+     * Adds or replaces a server-wide waypoint, matching names regardless of case.
+     */
+    void savePublicWaypoint(Waypoint waypoint);
+
+    void deletePublicWaypoint(String name);
+
+    /**
+     * Every public waypoint in a loaded world.
+     */
+    List<Waypoint> getPublicWaypoints();
+
+    // -------------------- Multi-server sync --------------------
+
+    /**
+     * Whether committed changes are stamped and logged for other servers, see {@code storage.sync}.
+     */
+    boolean isSyncEnabled();
+
+    /**
+     * Stamp of the last committed change to the player's data, or 0 if there is none.
+     * Stamps are random, only compare them for equality.
+     */
+    long getPlayerVersion(UUID uuid);
+
+    /**
+     * Changes committed by other servers with an id above {@code afterId}, oldest first.
+     */
+    List<Change> pollChanges(long afterId, int limit);
+
+    long getLatestChangeId();
+
+    /**
+     * Deletes change log entries older than the given time in epoch millis.
+     */
+    void pruneChanges(long olderThan);
+
+    /**
+     * Called on the writer thread with the new stamp of every player whose changes this server committed.
+     */
+    void setCommitListener(BiConsumer<UUID, Long> listener);
+
+    void close();
+}
@@ -0,0 +1,182 @@
+package me.rrs.titleInfo;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable, validated snapshot of {@code config.yml}.
+ * <p>
+ * The plugin publishes one snapshot at a time, see {@link TitleInfo#getSettings()}. Hot paths read its
+ * fields instead of looking up config paths, and a reload swaps in a complete new snapshot, so nothing
+ * ever sees a half-applied config. Storage, render thread, metrics endpoint and update checker settings
+ * are read once at startup; {@link #restartRequired(PluginSettings)} reports when a reload changed them.
+ *
+ * @param enabledMask display options enabled server-wide under {@code display_options}
+ */
+public record PluginSettings(int enabledMask, ActionBar actionBar, Waypoints waypoints, Share share, Storage storage,
+                             Monitoring monitoring, Updates updates) {
+
+    /**
+     * @param tickBudgetNanos max time rendering per tick, 0 for unlimited
+     */
+    public record ActionBar(ActionBarLayout layout, int refreshInterval, int keepaliveTicks, long tickBudgetNanos,
+                            boolean backoffEnabled, double backoffMsptThreshold, int backoffMaxInterval,
+                            boolean asyncRender, int renderThreads) {
+    }
+
+    public record Waypoints(int pageSize, int publicCellSize, int publicDefaultRadius, int publicMaxRadius, int publicMaxResults) {
+    }
+
+    /**
+     * @param playerPerMinute tokens a player's bucket regains per minute, up to {@code playerBurst}
+     * @param globalPerMinute tokens the bucket shared by all global broadcasts regains per minute, up to {@code globalBurst}
+     */
+    public record Share(ShareTemplate template, int playerBurst, double playerPerMinute, int globalBurst, double globalPerMinute,
+                        long coalesceNanos) {
+    }
+
+    /**
+     * Storage settings besides connection details, which the connection pools read when they open.
+     */
+    public record Storage(SqlDialect dialect, long flushIntervalMs, int writeBatchSize, int maxPending,
+                          int migrationBatchSize, long migrationBatchDelayMs, boolean vacuum,
+                          boolean syncEnabled, long pollIntervalTicks, int pollOverlap, int pollLimit, long retentionMs) {
+    }
+
+    public record Monitoring(int sampleRate, boolean httpEnabled, String httpHost, int httpPort) {
+    }
+
+    /**
+     * @param url where the latest version is read from as plain text, with {@code {resource}} standing for the Spigot resource id
+     */
+    public record Updates(boolean enabled, String url, long timeoutMs, long cacheTtlMs, long retryMinMs, long retryMaxMs) {
+    }
+
+    /**
+     * Reads and validates the settings.
+     *
+     * @throws IllegalArgumentException listing every invalid value, if there are any
+     */
+    public static PluginSettings parse(YamlDocument config) {
+        List<String> problems = new ArrayList<>();
+
+        int refreshInterval = config.getInt("action_bar.refresh_interval", 4);
+        if (refreshInterval < 1) problems.add("action_bar.refresh_interval must be at least 1");
+        int keepaliveTicks = config.getInt("action_bar.keepalive_ticks", 40);
+        if (keepaliveTicks < 1) problems.add("action_bar.keepalive_ticks must be at least 1");
+        double tickBudgetMs = config.getDouble("action_bar.tick_budget_ms", 2.0);
+        if (tickBudgetMs < 0) problems.add("action_bar.tick_budget_ms must not be negative");
+        double msptThreshold = config.getDouble("action_bar.backoff.mspt_threshold", 45.0);
+        if (msptThreshold <= 0) problems.add("action_bar.backoff.mspt_threshold must be positive");
+
+        ActionBar actionBar = new ActionBar(
+                ActionBarLayout.compile(config.getStringList("action_bar.layout")),
+                refreshInterval,
+                keepaliveTicks,
+                (long) (tickBudgetMs * 1_000_000L),
+                config.getBoolean("action_bar.backoff.enabled", true),
+                msptThreshold,
+                Math.max(refreshInterval, config.getInt("action_bar.backoff.max_interval", 20)),
+                config.getBoolean("action_bar.async_render.enabled", true),
+                config.getInt("action_bar.async_render.threads", 2));
+
+        int pageSize = config.getInt("waypoint_list.page_size", 10);
+        if (pageSize < 1) problems.add("waypoint_list.page_size must be at least 1");
+        int defaultRadius = config.getInt("public_waypoints.default_radius", 256);
+        int maxRadius = config.getInt("public_waypoints.max_radius", 2048);
+        if (defaultRadius < 1 || defaultRadius > maxRadius) {
+            problems.add("public_waypoints.default_radius must be between 1 and public_waypoints.max_radius");
+        }
+        int maxResults = config.getInt("public_waypoints.max_results", 10);
+        if (maxResults < 1) problems.add("public_waypoints.max_results must be at least 1");
+
+        Waypoints waypoints = new Waypoints(pageSize, Math.max(1, config.getInt("public_waypoints.cell_size", 64)),
+                defaultRadius, maxRadius, maxResults);
+
+        int playerBurst = config.getInt("share.rate_limit.player_burst", 3);
+        double playerPerMinute = config.getDouble("share.rate_limit.player_per_minute", 6.0);
+        if (playerBurst < 1 || playerPerMinute <= 0) problems.add("share.rate_limit.player_burst must be at least 1 and player_per_minute positive");
+        int globalBurst = config.getInt("share.rate_limit.global_burst", 10);
+        double globalPerMinute = config.getDouble("share.rate_limit.global_per_minute", 30.0);
+        if (globalBurst < 1 || globalPerMinute <= 0) problems.add("share.rate_limit.global_burst must be at least 1 and global_per_minute positive");
+
+        Share share = new Share(ShareTemplate.compile(config.getString("share.format")), playerBurst, playerPerMinute,
+                globalBurst, globalPerMinute, Math.max(0, config.getLong("share.coalesce_ms", 5000L)) * 1_000_000L);
+
+        SqlDialect dialect = SqlDialect.SQLITE;
+        try {
+            dialect = SqlDialect.fromConfig(config.getString("storage.type", "sqlite"));
+        } catch (IllegalArgumentException e) {
+            problems.add(e.getMessage());
+        }
+
+        Storage storage = new Storage(
+                dialect,
+                config.getLong("storage.write_behind.flush_interval_ms", 1000L),
+                config.getInt("storage.write_behind.batch_size", 500),
+                config.getInt("storage.write_behind.max_pending", 10000),
+                config.getInt("storage.migration.batch_size", 500),
+                config.getLong("storage.migration.batch_delay_ms", 50L),
+                config.getBoolean("storage.migration.vacuum", false),
+                config.getBoolean("storage.sync.enabled", false),
+                Math.max(1, config.getLong("storage.sync.poll_interval_ticks", 20L)),
+                config.getInt("storage.sync.poll_overlap", 100),
+                config.getInt("storage.sync.poll_limit", 1000),
+                config.getLong("storage.sync.retention_ms", 600000L));
+
+        Monitoring monitoring = new Monitoring(
+                Math.max(0, config.getInt("metrics.sample_rate", 16)),
+                config.getBoolean("metrics.http.enabled", false),
+                config.getString("metrics.http.host", "127.0.0.1"),
+                config.getInt("metrics.http.port", 9464));
+
+        String updateUrl = config.getString("update_checker.url", "https://api.spigotmc.org/legacy/update.php?resource={resource}");
+        if (!updateUrl.startsWith("https://") && !updateUrl.startsWith("http://")) problems.add("update_checker.url must be an http or https URL");
+        long timeoutMs = config.getLong("update_checker.timeout_ms", 5000L);
+        if (timeoutMs < 1) problems.add("update_checker.timeout_ms must be at least 1");
+        long retryMinMs = config.getLong("update_checker.retry_min_minutes", 5L) * 60_000L;
+        long retryMaxMs = config.getLong("update_checker.retry_max_minutes", 720L) * 60_000L;
+        if (retryMinMs < 60_000L || retryMaxMs < retryMinMs) {
+            problems.add("update_checker.retry_min_minutes must be at least 1 and at most update_checker.retry_max_minutes");
+        }
+
+        Updates updates = new Updates(
+                config.getBoolean("update_checker.enabled", true),
+                updateUrl,
+                timeoutMs,
+                Math.max(0, config.getLong("update_checker.cache_ttl_minutes", 720L)) * 60_000L,
+                retryMinMs,
+                retryMaxMs);
+
+        if (!problems.isEmpty()) throw new IllegalArgumentException(String.join("; ", problems));
+        return new PluginSettings(DisplayOption.serverMask(config), actionBar, waypoints, share, storage, monitoring, updates);
+    }
+
+    /**
+     * Options enabled server-wide that the layout actually shows.
+     */
+    public int serverMask() {
+        return enabledMask & actionBar.layout().getUsedMask();
+    }
+
+    public boolean isEnabled(DisplayOption option) {
+        return option.isIn(enabledMask);
+    }
+
+    /**
+     * Config sections that differ from {@code previous} but only take effect after a restart.
+     */
+    public List<String> restartRequired(PluginSettings previous) {
+        List<String> sections = new ArrayList<>();
+        if (!storage.equals(previous.storage)) sections.add("storage");
+        if (actionBar.asyncRender() != previous.actionBar.asyncRender()
+                || actionBar.renderThreads() != previous.actionBar.renderThreads()) sections.add("action_bar.async_render");
+        if (waypoints.publicCellSize() != previous.waypoints.publicCellSize()) sections.add("public_waypoints.cell_size");
+        if (monitoring.httpEnabled() != previous.monitoring.httpEnabled() || monitoring.httpPort() != previous.monitoring.httpPort()
+                || !monitoring.httpHost().equals(previous.monitoring.httpHost())) sections.add("metrics.http");
+        if (!updates.equals(previous.updates)) sections.add("update_checker");
+        return sections;
+    }
+}
@@ -0,0 +1,54 @@
+package me.rrs.titleInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A set of names answering case-insensitive prefix queries, for tab completion.
+ * <p>
+ * Names are kept sorted by their case-folded form, so a query seeks to the prefix and stops after
+ * {@code limit} matches instead of filtering every name. Safe to update and query from any thread.
+ */
+public class PrefixIndex {
+
+    private final ConcurrentSkipListMap<String, String> names = new ConcurrentSkipListMap<>();
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds the name, replacing a name that only differs in case.
+     */
+    public void add(String name) {
+        names.put(key(name), name);
+    }
+
+    public void remove(String name) {
+        names.remove(key(name));
+    }
+
+    public void clear() {
+        names.clear();
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Up to {@code limit} names starting with {@code prefix} regardless of case, in case-folded order.
+     */
+    public List<String> complete(String prefix, int limit) {
+        String from = key(prefix);
+        List<String> matches = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, String> entry : names.tailMap(from).entrySet()) {
+            if (matches.size() >= limit || !entry.getKey().startsWith(from)) break;
+            matches.add(entry.getValue());
+        }
+        return matches;
+    }
+}
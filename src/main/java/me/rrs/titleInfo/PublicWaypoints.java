@@ -0,0 +1,120 @@
+package me.rrs.titleInfo;
+
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Server-wide waypoints managed by admins, e.g. spawn, shops and portals.
+ * <p>
+ * Lookups run on render threads for every player, changes come from rare admin commands. Each change
+ * therefore rebuilds an immutable {@link WaypointGrid} per world and publishes it in one volatile write,
+ * and queries never lock.
+ */
+public class PublicWaypoints {
+
+    private record Index(Map<String, Waypoint> byName, Map<World, WaypointGrid> grids) {
+    }
+
+    private final int cellSize;
+    private volatile Index index = new Index(Map.of(), Map.of());
+    private final PrefixIndex names = new PrefixIndex();
+
+    public PublicWaypoints(int cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    public synchronized void load(Collection<Waypoint> waypoints) {
+        Map<String, Waypoint> byName = new LinkedHashMap<>();
+        for (Waypoint waypoint : waypoints) byName.put(key(waypoint.getName()), waypoint);
+        publish(byName);
+        names.clear();
+        byName.values().forEach(waypoint -> names.add(waypoint.getName()));
+    }
+
+    /**
+     * Adds the waypoint, replacing any public waypoint with the same name regardless of case.
+     *
+     * @return the replaced waypoint, or {@code null}
+     */
+    public synchronized Waypoint put(Waypoint waypoint) {
+        Map<String, Waypoint> byName = new LinkedHashMap<>(index.byName());
+        Waypoint previous = byName.remove(key(waypoint.getName()));
+        byName.put(key(waypoint.getName()), waypoint);
+        publish(byName);
+        names.add(waypoint.getName());
+        return previous;
+    }
+
+    /**
+     * @return the removed waypoint, or {@code null} if there was none
+     */
+    public synchronized Waypoint remove(String name) {
+        Map<String, Waypoint> byName = new LinkedHashMap<>(index.byName());
+        Waypoint removed = byName.remove(key(name));
+        if (removed != null) {
+            publish(byName);
+            names.remove(name);
+        }
+        return removed;
+    }
+
+    private void publish(Map<String, Waypoint> byName) {
+        Map<World, List<Waypoint>> perWorld = new HashMap<>();
+        for (Waypoint waypoint : byName.values()) {
+            perWorld.computeIfAbsent(waypoint.getLocation().getWorld(), k -> new ArrayList<>()).add(waypoint);
+        }
+
+        Map<World, WaypointGrid> grids = new HashMap<>();
+        perWorld.forEach((world, list) -> grids.put(world, WaypointGrid.build(list, cellSize)));
+        index = new Index(Collections.unmodifiableMap(byName), grids);
+    }
+
+    public Waypoint get(String name) {
+        return index.byName().get(key(name));
+    }
+
+    public Collection<Waypoint> getWaypoints() {
+        return index.byName().values();
+    }
+
+    public int size() {
+        return index.byName().size();
+    }
+
+    /**
+     * Up to {@code limit} public waypoint names starting with {@code prefix}, regardless of case.
+     */
+    public List<String> completeNames(String prefix, int limit) {
+        return names.complete(prefix, limit);
+    }
+
+    /**
+     * The public waypoint closest to the position, or {@code null} if the world has none.
+     */
+    public Waypoint nearest(World world, double x, double y, double z) {
+        WaypointGrid grid = index.grids().get(world);
+        return grid != null ? grid.nearest(x, y, z) : null;
+    }
+
+    /**
+     * Public waypoints within {@code radius} blocks of the position, closest first.
+     */
+    public List<Waypoint> within(World world, double x, double y, double z, double radius) {
+        List<Waypoint> found = new ArrayList<>();
+        WaypointGrid grid = index.grids().get(world);
+        if (grid != null) grid.within(x, y, z, radius, found);
+        return found;
+    }
+}
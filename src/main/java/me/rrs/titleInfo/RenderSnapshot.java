@@ -0,0 +1,19 @@
+package me.rrs.titleInfo;
+
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+
+/**
+ * The inputs of one action bar update, captured on the thread that ticks the player so the message
+ * can be built and sent from any thread.
+ *
+ * @param settings  the settings the plan was compiled against, used for the whole render even if a reload happens meanwhile
+ * @param plan      display options to render
+ * @param worldTime time of day in ticks, or -1 if the world has no day cycle or time is not shown
+ * @param biome     biome at the player's position, or {@code null} if not shown
+ * @param waypoint  the active waypoint, or {@code null} if there is none or it is not shown
+ * @param tick      server tick of the capture
+ */
+record RenderSnapshot(PluginSettings settings, int plan, World world, double x, double y, double z, float yaw,
+                      long worldTime, Biome biome, Waypoint waypoint, int tick) {
+}
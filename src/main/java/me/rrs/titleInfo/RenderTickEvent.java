@@ -0,0 +1,28 @@
+package me.rrs.titleInfo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one run of the {@link ActionBarScheduler}.
+ */
+@Name("me.rrs.titleinfo.RenderTick")
+@Label("TitleInfo Render Tick")
+@Category({"TitleInfo", "Rendering"})
+@Description("Action bars refreshed by TitleInfo in one server tick")
+final class RenderTickEvent extends jdk.jfr.Event {
+
+    @Label("Players")
+    int players;
+
+    @Label("Online Players")
+    int online;
+
+    @Label("Budget Exceeded")
+    boolean budgetExceeded;
+
+    @Label("Interval Backoff")
+    int backoff;
+}
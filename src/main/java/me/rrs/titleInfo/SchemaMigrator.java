@@ -0,0 +1,291 @@
+package me.rrs.titleInfo;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * Applies versioned schema migrations, recording each version in {@code titleinfo_schema}.
+ * <p>
+ * A migration has a schema step, applied on startup, and an optional background step that moves
+ * existing rows in bounded batches on its own thread, so a large database never delays startup.
+ * Until the background step has finished, storage code must still consult the old tables; it does
+ * so under {@link #lockShared()}, and the step's final cleanup only runs once no such reads are in flight.
+ */
+public class SchemaMigrator {
+
+    @FunctionalInterface
+    public interface SchemaStep {
+        void apply(SqlSession session) throws SQLException;
+    }
+
+    public interface BackgroundStep {
+        /**
+         * Moves up to {@code limit} rows inside the current transaction.
+         *
+         * @return the number of rows moved, 0 once nothing is left
+         */
+        int migrateBatch(SqlSession session, int limit) throws SQLException;
+
+        /**
+         * Cleans up after the last batch, e.g. drops the old tables. Runs in the transaction that marks the
+         * version complete; where DDL commits implicitly, that mark is already committed, so this must be safe to repeat.
+         */
+        void finish(SqlSession session) throws SQLException;
+
+        /**
+         * Optionally reclaims the space freed by {@link #finish}, e.g. with {@code VACUUM}. Runs once the old
+         * tables are gone and reads are no longer blocked, but still holds the connection it is given;
+         * the statement is cancelled if the plugin shuts down meanwhile.
+         */
+        default void compact(Statement stmt) throws SQLException {
+        }
+    }
+
+    public record Migration(int version, String description, SchemaStep schema, BackgroundStep background) {
+    }
+
+    private final Logger logger;
+    private final ConnectionPool pool;
+    private final SqlDialect dialect;
+    private final List<Migration> migrations;
+    private final int batchSize;
+    private final long batchDelayMs;
+
+    // Versions whose background step has not finished yet
+    private final Map<Integer, Migration> pending = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ScheduledExecutorService executor;
+    private volatile boolean closing;
+    private volatile Statement compacting;
+
+    public SchemaMigrator(Logger logger, ConnectionPool pool, SqlDialect dialect, List<Migration> migrations,
+                          int batchSize, long batchDelayMs) {
+        this.logger = logger;
+        this.pool = pool;
+        this.dialect = dialect;
+        this.migrations = migrations;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchDelayMs = Math.max(0, batchDelayMs);
+    }
+
+    /**
+     * Applies the schema step of every migration newer than the database.
+     * <p>
+     * Servers sharing a networked database may start at the same time and both find a version missing,
+     * so schema steps must be safe to repeat and the version row is only inserted if it is still absent.
+     *
+     * @param legacyTable a table that only exists in databases created before versioning; if it is
+     *                    missing as well, the database is new and there are no rows to move
+     */
+    public void migrate(String legacyTable) throws SQLException {
+        try (SqlSession session = pool.writer()) {
+            Connection conn = session.getConnection();
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS titleinfo_schema (" +
+                        "version INT PRIMARY KEY, complete INT NOT NULL)");
+            }
+
+            Map<Integer, Boolean> applied = new HashMap<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT version, complete FROM titleinfo_schema")) {
+                while (rs.next()) applied.put(rs.getInt("version"), rs.getInt("complete") != 0);
+            }
+            boolean fresh = applied.isEmpty() && !tableExists(conn, legacyTable);
+
+            for (Migration migration : migrations) {
+                Boolean complete = applied.get(migration.version());
+                if (complete == null) {
+                    logger.info("Migrating database to version " + migration.version() + ": " + migration.description());
+                    migration.schema().apply(session);
+                    complete = fresh || migration.background() == null;
+
+                    PreparedStatement stmt = session.prepare(dialect.insertIgnore("titleinfo_schema", "version", "complete"));
+                    stmt.setInt(1, migration.version());
+                    stmt.setInt(2, complete ? 1 : 0);
+                    stmt.executeUpdate();
+                }
+                if (!complete) pending.put(migration.version(), migration);
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = meta.getTables(null, null, name, new String[]{"TABLE"})) {
+                if (rs.next()) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts moving rows for migrations that have not finished yet.
+     */
+    public void startBackground() {
+        if (pending.isEmpty()) return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "TitleInfo-DB-Migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runBatch, batchDelayMs, Math.max(1, batchDelayMs), TimeUnit.MILLISECONDS);
+    }
+
+    private void runBatch() {
+        Migration migration;
+        lock.readLock().lock();
+        try {
+            migration = pending.values().stream()
+                    .min((a, b) -> Integer.compare(a.version(), b.version()))
+                    .orElse(null);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (migration == null) {
+            executor.shutdown();
+            return;
+        }
+
+        DatabaseEvent event = DatabaseEvent.start("migrate_v" + migration.version(), "migration");
+        int moved = -1;
+        try (SqlSession session = pool.writer()) {
+            Connection conn = session.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                moved = migration.background().migrateBatch(session, batchSize);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                moved = -1;
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+                event.finish(moved, moved >= 0);
+            }
+
+            if (moved == 0) {
+                complete(session, migration);
+                compact(session, migration);
+            }
+        } catch (SQLException e) {
+            logger.severe("Failed to migrate database to version " + migration.version() + ", retrying: " + e.getMessage());
+        } catch (RuntimeException e) {
+            logger.severe("Unexpected error while migrating database to version " + migration.version() + ": " + e.getMessage());
+        }
+    }
+
+    private void complete(SqlSession session, Migration migration) throws SQLException {
+        Connection conn = session.getConnection();
+        // Wait for reads of the old tables to finish before they go away
+        lock.writeLock().lock();
+        try {
+            conn.setAutoCommit(false);
+            try {
+                // Marked first: if a drop commits it early and the cleanup stops there, the old tables are
+                // left unused rather than the version left pending with nothing to read from
+                PreparedStatement stmt = session.prepare("UPDATE titleinfo_schema SET complete = 1 WHERE version = ?");
+                stmt.setInt(1, migration.version());
+                stmt.executeUpdate();
+                migration.background().finish(session);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                try {
+                    if (isComplete(session, migration.version())) pending.remove(migration.version());
+                } catch (SQLException check) {
+                    e.addSuppressed(check);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            pending.remove(migration.version());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Finished migrating database to version " + migration.version() + ".");
+    }
+
+    private void compact(SqlSession session, Migration migration) {
+        try (Statement stmt = session.getConnection().createStatement()) {
+            // Published before checking, so close() either sees it to cancel or this sees close()
+            compacting = stmt;
+            if (closing) return;
+            migration.background().compact(stmt);
+        } catch (SQLException e) {
+            if (closing) {
+                logger.warning("Stopped compacting the database for version " + migration.version() + " to shut down.");
+            } else {
+                logger.severe("Failed to compact the database after version " + migration.version() + ": " + e.getMessage());
+            }
+        } finally {
+            compacting = null;
+        }
+    }
+
+    private static boolean isComplete(SqlSession session, int version) throws SQLException {
+        PreparedStatement stmt = session.prepare("SELECT complete FROM titleinfo_schema WHERE version = ?");
+        stmt.setInt(1, version);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() && rs.getInt("complete") != 0;
+        }
+    }
+
+    /**
+     * Blocks the final cleanup of background migrations; pair with {@link #unlockShared()}.
+     */
+    public void lockShared() {
+        lock.readLock().lock();
+    }
+
+    public void unlockShared() {
+        lock.readLock().unlock();
+    }
+
+    /**
+     * Whether rows for the given version are still being moved. Only stable while holding {@link #lockShared()}.
+     */
+    public boolean isPending(int version) {
+        return pending.containsKey(version);
+    }
+
+    /**
+     * Stops the background work; unfinished migrations resume on the next start, a running compaction is cancelled.
+     */
+    public void close() {
+        if (executor == null) return;
+        closing = true;
+        executor.shutdown();
+        Statement stmt = compacting;
+        if (stmt != null) {
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                logger.warning("Failed to cancel compacting the database: " + e.getMessage());
+            }
+        }
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Database migration did not stop in time, closing its connection anyway.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package me.rrs.titleInfo;
+
+import org.bukkit.Location;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Throttles coordinate shares before they are built and sent.
+ * <p>
+ * Every player has a token bucket, and global broadcasts additionally draw from one server-wide bucket,
+ * since each of them is sent to every online player. Buckets refill continuously and read their limits
+ * from the current settings, so a reload applies right away. A share repeating the sender's last one,
+ * same target and block, within {@code share.coalesce_ms} is dropped without using a token.
+ * <p>
+ * A player's state is kept after they quit, so rejoining does not reset their limit. It is evicted
+ * once their bucket has refilled and the coalescing window has passed, when it is the same as a new one.
+ */
+public class ShareLimiter {
+
+    // How often idle senders are evicted
+    private static final long EVICT_INTERVAL_TICKS = 1200L;
+
+    public enum Result {
+        ALLOWED, COALESCED, PLAYER_LIMITED, GLOBAL_LIMITED
+    }
+
+    private final TitleInfo plugin;
+    private final Map<UUID, Sender> senders = new ConcurrentHashMap<>();
+    private final TokenBucket global = new TokenBucket();
+    private final Metrics.Counter[] results = new Metrics.Counter[Result.values().length];
+
+    public ShareLimiter(TitleInfo plugin) {
+        this.plugin = plugin;
+        for (Result result : Result.values()) {
+            results[result.ordinal()] = plugin.getMetrics().counter("titleinfo_shares", "Coordinate shares by outcome",
+                    "result", result.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Takes the tokens for a share if the limits allow it.
+     *
+     * @param target the receiving player, {@code null} for a global broadcast
+     */
+    public Result tryShare(UUID sender, UUID target, Location loc) {
+        PluginSettings.Share settings = plugin.getSettings().share();
+        ShareKey key = new ShareKey(target, loc.getWorld().getUID(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+        long now = System.nanoTime();
+
+        Sender state = senders.computeIfAbsent(sender, k -> new Sender());
+        Result result;
+        synchronized (state) {
+            if (key.equals(state.lastKey) && now - state.lastAt < settings.coalesceNanos()) {
+                result = Result.COALESCED;
+            } else if (!state.bucket.tryAcquire(settings.playerBurst(), settings.playerPerMinute(), now)) {
+                result = Result.PLAYER_LIMITED;
+            } else if (target == null && !global.tryAcquire(settings.globalBurst(), settings.globalPerMinute(), now)) {
+                // Denied by the server-wide limit, not the player's fault
+                state.bucket.refund();
+                result = Result.GLOBAL_LIMITED;
+            } else {
+                state.lastKey = key;
+                state.lastAt = now;
+                result = Result.ALLOWED;
+            }
+        }
+
+        results[result.ordinal()].inc();
+        return result;
+    }
+
+    public void start() {
+        plugin.getTaskScheduler().runAsyncTimer(this::evictIdle, EVICT_INTERVAL_TICKS, EVICT_INTERVAL_TICKS);
+    }
+
+    void evictIdle() {
+        PluginSettings.Share settings = plugin.getSettings().share();
+        long now = System.nanoTime();
+        // A share racing the eviction draws from a full bucket, at worst allowing one extra share
+        senders.values().removeIf(state -> state.isIdle(settings, now));
+    }
+
+    int getSenderCount() {
+        return senders.size();
+    }
+
+    private record ShareKey(UUID target, UUID world, int x, int y, int z) {
+    }
+
+    // Guarded by itself
+    private static final class Sender {
+        private final TokenBucket bucket = new TokenBucket();
+        private ShareKey lastKey;
+        private long lastAt;
+
+        synchronized boolean isIdle(PluginSettings.Share settings, long now) {
+            return (lastKey == null || now - lastAt >= settings.coalesceNanos()) && bucket.isFull(settings.playerBurst(), settings.playerPerMinute(), now);
+        }
+    }
+
+    /**
+     * Holds up to {@code capacity} tokens, refilled at {@code perMinute}. Starts full.
+     */
+    static final class TokenBucket {
+
+        private double tokens = -1;
+        private long refilledAt;
+
+        synchronized boolean tryAcquire(int capacity, double perMinute, long now) {
+            if (tokens < 0) tokens = capacity;
+            else tokens = Math.min(capacity, tokens + (now - refilledAt) * perMinute / 60_000_000_000.0);
+            refilledAt = now;
+
+            if (tokens < 1) return false;
+            tokens--;
+            return true;
+        }
+
+        synchronized void refund() {
+            tokens++;
+        }
+
+        synchronized boolean isFull(int capacity, double perMinute, long now) {
+            return tokens < 0 || tokens + (now - refilledAt) * perMinute / 60_000_000_000.0 >= capacity;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package me.rrs.titleInfo;
+
+import me.rrs.titleInfo.TemplateParser.Part;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+
+import java.util.Locale;
+
+/**
+ * Coordinate share message compiled once from the {@code share.format} template.
+ * <p>
+ * Uses the syntax of {@link TemplateParser}, like the action bar layout, with the slots {@code <player>},
+ * {@code <x>}, {@code <y>}, {@code <z>} and {@code <world>}.
+ */
+public final class ShareTemplate {
+
+    public static final String DEFAULT_TEMPLATE =
+            "<gold>[<yellow><player></yellow>] <gray>is at <yellow>X: <x><gray>, <yellow>Y: <y><gray>, <yellow>Z: <z> <gray>in <white><world>";
+
+    private final Part<Slot>[] parts;
+
+    private ShareTemplate(Part<Slot>[] parts) {
+        this.parts = parts;
+    }
+
+    /**
+     * Parses the template, falling back to the default format when none is given.
+     */
+    public static ShareTemplate compile(String template) {
+        if (template == null || template.isEmpty()) template = DEFAULT_TEMPLATE;
+        return new ShareTemplate(TemplateParser.parse(template, Slot::fromTag));
+    }
+
+    public Component render(String player, int x, int y, int z, String world) {
+        TextComponent.Builder builder = Component.text();
+        for (Part<Slot> part : parts) {
+            if (part.slot() == null) {
+                builder.append(part.component());
+                continue;
+            }
+            String value = switch (part.slot()) {
+                case PLAYER -> player;
+                case X -> Integer.toString(x);
+                case Y -> Integer.toString(y);
+                case Z -> Integer.toString(z);
+                case WORLD -> world;
+            };
+            builder.append(Component.text(value, part.style()));
+        }
+        return builder.build();
+    }
+
+    private enum Slot {
+        PLAYER, X, Y, Z, WORLD;
+
+        static Slot fromTag(String tag) {
+            for (Slot slot : values()) {
+                if (slot.name().toLowerCase(Locale.ROOT).equals(tag)) return slot;
+            }
+            return null;
+        }
+    }
+}
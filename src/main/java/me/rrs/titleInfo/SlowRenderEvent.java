@@ -0,0 +1,30 @@
+package me.rrs.titleInfo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for a single action bar update that took longer than the threshold, 1 ms unless the
+ * recording's settings override it.
+ */
+@Name("me.rrs.titleinfo.SlowRender")
+@Label("TitleInfo Slow Render")
+@Category({"TitleInfo", "Rendering"})
+@Description("An action bar update for one player that exceeded the threshold")
+@Threshold("1 ms")
+final class SlowRenderEvent extends jdk.jfr.Event {
+
+    @Label("Player")
+    String player;
+
+    @Label("Display Options")
+    @Description("Bitmask of the display options rendered")
+    int plan;
+
+    @Label("Rebuilt")
+    @Description("Whether the message had to be rebuilt")
+    boolean rebuilt;
+}
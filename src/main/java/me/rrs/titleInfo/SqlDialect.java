@@ -0,0 +1,131 @@
+package me.rrs.titleInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL differences between the supported storage backends.
+ */
+public enum SqlDialect {
+    SQLITE("org.sqlite.JDBC", "jdbc:sqlite:", 0),
+    MYSQL("com.mysql.cj.jdbc.Driver", "jdbc:mysql://", 3306),
+    MARIADB("org.mariadb.jdbc.Driver", "jdbc:mariadb://", 3306),
+    POSTGRESQL("org.postgresql.Driver", "jdbc:postgresql://", 5432);
+
+    private final String driverClass;
+    private final String urlPrefix;
+    private final int defaultPort;
+
+    SqlDialect(String driverClass, String urlPrefix, int defaultPort) {
+        this.driverClass = driverClass;
+        this.urlPrefix = urlPrefix;
+        this.defaultPort = defaultPort;
+    }
+
+    public static SqlDialect fromConfig(String type) {
+        for (SqlDialect dialect : values()) {
+            if (dialect.name().equalsIgnoreCase(type)) return dialect;
+        }
+        throw new IllegalArgumentException("Unknown storage type '" + type + "', expected sqlite, mysql, mariadb or postgresql");
+    }
+
+    public String getDriverClass() {
+        return driverClass;
+    }
+
+    public int getDefaultPort() {
+        return defaultPort;
+    }
+
+    public String jdbcUrl(String host, int port, String database) {
+        return urlPrefix + host + ":" + port + "/" + database;
+    }
+
+    /**
+     * Column type for short strings that take part in keys; MySQL cannot index unbounded TEXT.
+     */
+    public String varchar(int length) {
+        return this == SQLITE ? "TEXT" : "VARCHAR(" + length + ")";
+    }
+
+    public String doubleType() {
+        return this == POSTGRESQL ? "DOUBLE PRECISION" : "DOUBLE";
+    }
+
+    /**
+     * Column definition for an integer key the database assigns on insert.
+     */
+    public String autoIncrementKey() {
+        return switch (this) {
+            case SQLITE -> "INTEGER PRIMARY KEY";
+            case MYSQL, MARIADB -> "INT AUTO_INCREMENT PRIMARY KEY";
+            case POSTGRESQL -> "SERIAL PRIMARY KEY";
+        };
+    }
+
+    /**
+     * Like {@link #autoIncrementKey()}, for tables whose ids may outgrow a 32-bit integer.
+     */
+    public String autoIncrementLongKey() {
+        return switch (this) {
+            case SQLITE -> "INTEGER PRIMARY KEY";
+            case MYSQL, MARIADB -> "BIGINT AUTO_INCREMENT PRIMARY KEY";
+            case POSTGRESQL -> "BIGSERIAL PRIMARY KEY";
+        };
+    }
+
+    /**
+     * Table option storing rows in primary key order; SQLite otherwise keeps a hidden rowid and a separate key index.
+     */
+    public String withoutRowid() {
+        return this == SQLITE ? " WITHOUT ROWID" : "";
+    }
+
+    /**
+     * Builds an insert that does nothing when a row with the same key already exists.
+     */
+    public String insertIgnore(String table, String... columns) {
+        String placeholders = String.join(", ", Collections.nCopies(columns.length, "?"));
+        String values = " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+        return switch (this) {
+            case SQLITE -> "INSERT OR IGNORE INTO " + table + values;
+            case MYSQL, MARIADB -> "INSERT IGNORE INTO " + table + values;
+            case POSTGRESQL -> "INSERT INTO " + table + values + " ON CONFLICT DO NOTHING";
+        };
+    }
+
+    /**
+     * Builds an insert that updates {@code updateColumns} when a row with the same key already exists.
+     * The inserted columns are the key columns followed by the update columns that are not part of the key.
+     */
+    public String upsert(String table, String[] keyColumns, String[] updateColumns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        List<String> columns = new ArrayList<>(Arrays.asList(keyColumns));
+        for (String column : updateColumns) {
+            if (!columns.contains(column)) columns.add(column);
+        }
+
+        sql.append(String.join(", ", columns)).append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ");
+
+        if (this == MYSQL || this == MARIADB) {
+            sql.append("ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < updateColumns.length; i++) {
+                if (i > 0) sql.append(", ");
+                sql.append(updateColumns[i]).append(" = VALUES(").append(updateColumns[i]).append(")");
+            }
+        } else {
+            sql.append("ON CONFLICT (").append(String.join(", ", keyColumns)).append(") DO UPDATE SET ");
+            for (int i = 0; i < updateColumns.length; i++) {
+                if (i > 0) sql.append(", ");
+                sql.append(updateColumns[i]).append(" = excluded.").append(updateColumns[i]);
+            }
+        }
+        return sql.toString();
+    }
+}
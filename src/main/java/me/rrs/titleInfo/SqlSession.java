@@ -0,0 +1,64 @@
+package me.rrs.titleInfo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A borrowed database connection that keeps its prepared statements for reuse.
+ * <p>
+ * Statements returned by {@link #prepare(String)} belong to the session and must not be closed by
+ * the caller. Closing the session hands the connection back to its pool with the statements intact,
+ * so long-lived pooled connections only ever prepare each query once.
+ */
+public class SqlSession implements AutoCloseable {
+
+    private final Connection connection;
+    private final Consumer<SqlSession> release;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    public SqlSession(Connection connection, Consumer<SqlSession> release) {
+        this.connection = connection;
+        this.release = release;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+        } else {
+            stmt.clearParameters();
+        }
+        return stmt;
+    }
+
+    @Override
+    public void close() {
+        release.accept(this);
+    }
+
+    /**
+     * Closes the cached statements and the underlying connection.
+     */
+    public void closeConnection() {
+        for (PreparedStatement stmt : statements.values()) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
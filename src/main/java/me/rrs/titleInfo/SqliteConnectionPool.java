@@ -0,0 +1,131 @@
+package me.rrs.titleInfo;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connections tuned for SQLite, which only ever allows one writer at a time.
+ * <p>
+ * Instead of a general purpose pool competing for the write lock, there is one dedicated writer
+ * connection and a few read-only connections. In WAL mode readers never block the writer and vice
+ * versa. Connections live as long as the plugin, so their cached statements are reused across calls.
+ */
+public class SqliteConnectionPool implements ConnectionPool {
+
+    private static final long BORROW_TIMEOUT_MS = 30000;
+
+    private final SqlSession writer;
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final BlockingQueue<SqlSession> readers;
+    private final List<SqlSession> allReaders = new ArrayList<>();
+    private final AtomicInteger waitingReaders = new AtomicInteger();
+
+    public SqliteConnectionPool(File file, YamlDocument config) throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite driver not found", e);
+        }
+
+        String url = "jdbc:sqlite:" + file.getPath();
+        String journalMode = pragmaWord(config.getString("storage.sqlite.journal_mode", "WAL"));
+        String synchronous = pragmaWord(config.getString("storage.sqlite.synchronous", "NORMAL"));
+        long cacheSize = config.getLong("storage.sqlite.cache_size", -16000L);
+        long mmapSize = config.getLong("storage.sqlite.mmap_size", 268435456L);
+        int busyTimeout = config.getInt("storage.sqlite.busy_timeout_ms", 5000);
+        int readerCount = Math.max(1, config.getInt("storage.sqlite.read_connections", 2));
+
+        Connection writerConn = DriverManager.getConnection(url);
+        try (Statement stmt = writerConn.createStatement()) {
+            // Journal mode is stored in the database file, set it once from the writer
+            stmt.execute("PRAGMA journal_mode = " + journalMode);
+        }
+        applyPragmas(writerConn, synchronous, cacheSize, mmapSize, busyTimeout, false);
+        this.writer = new SqlSession(writerConn, session -> writerLock.unlock());
+
+        this.readers = new ArrayBlockingQueue<>(readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            Connection readerConn = DriverManager.getConnection(url);
+            applyPragmas(readerConn, synchronous, cacheSize, mmapSize, busyTimeout, true);
+            SqlSession reader = new SqlSession(readerConn, readers::offer);
+            allReaders.add(reader);
+            readers.add(reader);
+        }
+    }
+
+    private static void applyPragmas(Connection conn, String synchronous, long cacheSize, long mmapSize,
+                                     int busyTimeout, boolean readOnly) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeout);
+            stmt.execute("PRAGMA temp_store = MEMORY");
+            if (readOnly) stmt.execute("PRAGMA query_only = ON");
+        }
+    }
+
+    private static String pragmaWord(String value) throws SQLException {
+        if (value == null || !value.matches("[A-Za-z]+")) {
+            throw new SQLException("Invalid SQLite pragma value: " + value);
+        }
+        return value.toUpperCase();
+    }
+
+    @Override
+    public SqlSession writer() throws SQLException {
+        try {
+            if (!writerLock.tryLock(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for the SQLite writer connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the SQLite writer connection", e);
+        }
+        return writer;
+    }
+
+    @Override
+    public SqlSession reader() throws SQLException {
+        waitingReaders.incrementAndGet();
+        try {
+            SqlSession reader = readers.poll(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (reader == null) throw new SQLException("Timed out waiting for an SQLite read connection");
+            return reader;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for an SQLite read connection", e);
+        } finally {
+            waitingReaders.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Stats stats() {
+        int active = (writerLock.isLocked() ? 1 : 0) + allReaders.size() - readers.size();
+        return new Stats(active, 1 + allReaders.size(), writerLock.getQueueLength() + waitingReaders.get());
+    }
+
+    @Override
+    public void close() {
+        writerLock.lock();
+        try {
+            writer.closeConnection();
+        } finally {
+            writerLock.unlock();
+        }
+        allReaders.forEach(SqlSession::closeConnection);
+    }
+}
@@ -0,0 +1,57 @@
+package me.rrs.titleInfo;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.List;
+
+/**
+ * Prefix indexes of online player names and enabled display types, kept up to date as players
+ * join and leave so tab completion never walks the player list or the config.
+ * <p>
+ * Waypoint names are indexed by their {@link WaypointBook} and {@link PublicWaypoints}.
+ */
+public class TabCompletions implements Listener {
+
+    private final PrefixIndex onlinePlayers = new PrefixIndex();
+    private volatile PrefixIndex displayTypes = new PrefixIndex();
+
+    public TabCompletions(PluginSettings settings) {
+        for (Player player : Bukkit.getOnlinePlayers()) onlinePlayers.add(player.getName());
+        reloadDisplayTypes(settings);
+    }
+
+    /**
+     * Rebuilds the display types from the options enabled in the settings, swapping them in at once.
+     */
+    public void reloadDisplayTypes(PluginSettings settings) {
+        PrefixIndex types = new PrefixIndex();
+        for (DisplayOption option : DisplayOption.values()) {
+            if (settings.isEnabled(option)) types.add(option.getKey());
+        }
+        displayTypes = types;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        onlinePlayers.add(event.getPlayer().getName());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        onlinePlayers.remove(event.getPlayer().getName());
+    }
+
+    public List<String> players(String prefix, int limit) {
+        return onlinePlayers.complete(prefix, limit);
+    }
+
+    public List<String> displayTypes(String prefix, int limit) {
+        return displayTypes.complete(prefix, limit);
+    }
+}
@@ -0,0 +1,93 @@
+package me.rrs.titleInfo;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules tasks through Paper's region-aware schedulers, which run on both Paper and Folia.
+ * <p>
+ * On Paper the global region and every entity are ticked on the main thread, so this behaves like the
+ * Bukkit scheduler. On Folia there is no main thread: global tasks run on the global region thread and
+ * entity tasks on whichever region thread owns the entity, so code may only touch that entity's world there.
+ */
+public final class TaskScheduler {
+
+    private static final boolean FOLIA = detectFolia();
+    private static final long MILLIS_PER_TICK = 50L;
+
+    private final TitleInfo plugin;
+
+    public TaskScheduler(TitleInfo plugin) {
+        this.plugin = plugin;
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether the server ticks regions in parallel, i.e. there is no single main thread.
+     */
+    public static boolean isFolia() {
+        return FOLIA;
+    }
+
+    /**
+     * Runs the task on the global region, the main thread on Paper.
+     */
+    public void runGlobal(Runnable task) {
+        Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+    }
+
+    public ScheduledTask runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, t -> task.run(), Math.max(1, delayTicks), Math.max(1, periodTicks));
+    }
+
+    public void runAsync(Runnable task) {
+        Bukkit.getAsyncScheduler().runNow(plugin, t -> task.run());
+    }
+
+    public ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return Bukkit.getAsyncScheduler().runAtFixedRate(plugin, t -> task.run(),
+                Math.max(1, delayTicks) * MILLIS_PER_TICK, Math.max(1, periodTicks) * MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the task on the thread that owns the entity; it is dropped if the entity is removed first.
+     */
+    public void runAt(Entity entity, Runnable task) {
+        runAt(entity, task, null);
+    }
+
+    /**
+     * Like {@link #runAt(Entity, Runnable)}, running {@code retired} instead if the entity is removed first.
+     */
+    public void runAt(Entity entity, Runnable task, Runnable retired) {
+        entity.getScheduler().run(plugin, t -> task.run(), retired);
+    }
+
+    /**
+     * Repeats the task on the thread that owns the entity until the entity is removed, e.g. the player quits.
+     *
+     * @return the task, or {@code null} if the entity has already been removed
+     */
+    public ScheduledTask runAtTimer(Entity entity, Runnable task, long delayTicks, long periodTicks) {
+        return entity.getScheduler().runAtFixedRate(plugin, t -> task.run(), null, Math.max(1, delayTicks), Math.max(1, periodTicks));
+    }
+
+    /**
+     * Cancels every task the plugin scheduled on the global region or the async scheduler.
+     */
+    public void cancelAll() {
+        Bukkit.getGlobalRegionScheduler().cancelTasks(plugin);
+        Bukkit.getAsyncScheduler().cancelTasks(plugin);
+    }
+}
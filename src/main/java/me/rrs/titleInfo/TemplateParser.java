@@ -0,0 +1,98 @@
+package me.rrs.titleInfo;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Parser for the MiniMessage-style templates in the config.
+ * <p>
+ * Supports color and decoration tags ({@code <gold>}, {@code <#ffaa00>}, {@code <bold>}), closing tags that
+ * restore the previous style, {@code <reset>}, and slots, whose tags the caller resolves. Unknown tags are
+ * kept as literal text. Static text is turned into reusable components, so rendering only creates the
+ * components holding slot values.
+ */
+final class TemplateParser {
+
+    private TemplateParser() {
+    }
+
+    /**
+     * Either static text, with its component built up front, or a slot to fill in with the style it is shown in.
+     */
+    record Part<S>(S slot, Style style, Component component) {
+    }
+
+    /**
+     * @param slots resolves a lowercase tag to its slot, or {@code null} if it is not a slot
+     */
+    @SuppressWarnings("unchecked")
+    static <S> Part<S>[] parse(String template, Function<String, S> slots) {
+        List<Part<S>> parts = new ArrayList<>();
+        Deque<Style> styles = new ArrayDeque<>();
+        Style style = Style.empty();
+        StringBuilder text = new StringBuilder();
+
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            int close = c == '<' ? template.indexOf('>', i) : -1;
+            if (close < 0) {
+                text.append(c);
+                i++;
+                continue;
+            }
+
+            String tag = template.substring(i + 1, close).toLowerCase(Locale.ROOT);
+            S slot = slots.apply(tag);
+            Style next;
+
+            if (slot != null) {
+                flushText(parts, text, style);
+                parts.add(new Part<>(slot, style, null));
+            } else if (tag.equals("reset")) {
+                flushText(parts, text, style);
+                styles.clear();
+                style = Style.empty();
+            } else if (tag.startsWith("/")) {
+                flushText(parts, text, style);
+                style = styles.isEmpty() ? Style.empty() : styles.pop();
+            } else if ((next = applyTag(style, tag)) != null) {
+                flushText(parts, text, style);
+                styles.push(style);
+                style = next;
+            } else {
+                // Unknown tag, keep it as literal text
+                text.append(template, i, close + 1);
+            }
+            i = close + 1;
+        }
+
+        flushText(parts, text, style);
+        return parts.toArray(new Part[0]);
+    }
+
+    private static <S> void flushText(List<Part<S>> parts, StringBuilder text, Style style) {
+        if (text.isEmpty()) return;
+        parts.add(new Part<>(null, style, Component.text(text.toString(), style)));
+        text.setLength(0);
+    }
+
+    private static Style applyTag(Style style, String tag) {
+        NamedTextColor named = NamedTextColor.NAMES.value(tag);
+        if (named != null) return style.color(named);
+
+        if (tag.startsWith("#")) {
+            TextColor hex = TextColor.fromHexString(tag);
+            return hex != null ? style.color(hex) : null;
+        }
+
+        TextDecoration decoration = TextDecoration.NAMES.value(tag);
+        return decoration != null ? style.decorate(decoration) : null;
+    }
+}
@@ -1,148 +1,313 @@
 package me.rrs.titleInfo;
 
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Biome;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.ServerLoadEvent;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class Title implements Listener {
 
     private final TitleInfo plugin;
 
-    private static final String[] DIRECTIONS = {"S", "SW", "W", "NW", "N", "NE", "E", "SE"};
-    private static final String[] WAYPOINT_DIRECTIONS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+    private final BiomeNames biomeNames = new BiomeNames();
+
+    // Builds and sends messages off the tick thread, null to render synchronously
+    private final ExecutorService renderExecutor;
+
+    // Per-option timings are only taken for one in metrics.sample_rate updates, nanoTime is not free
+    private final Metrics.Histogram[] segmentTime = new Metrics.Histogram[DisplayOption.values().length];
+    private final Metrics.Counter rendered;
+    private final Metrics.Counter unchanged;
+    private final Metrics.Counter keepalives;
 
     public Title(TitleInfo plugin) {
         this.plugin = plugin;
+        this.renderExecutor = createRenderExecutor();
+
+        Metrics metrics = plugin.getMetrics();
+        for (DisplayOption option : DisplayOption.values()) {
+            segmentTime[option.ordinal()] = metrics.timer("titleinfo_render_segment_seconds",
+                    "Sampled time spent diffing and formatting one display option", "segment", option.getKey());
+        }
+        this.rendered = metrics.counter("titleinfo_render_messages", "Action bar messages rebuilt");
+        this.unchanged = metrics.counter("titleinfo_render_unchanged", "Refreshes skipped because no displayed input changed");
+        this.keepalives = metrics.counter("titleinfo_render_keepalives", "Unchanged messages resent to keep the action bar visible");
+    }
+
+    private ExecutorService createRenderExecutor() {
+        PluginSettings.ActionBar settings = plugin.getSettings().actionBar();
+        if (!settings.asyncRender()) return null;
+
+        int threads = settings.renderThreads();
+        if (threads <= 0) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("TitleInfo-Render-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("TitleInfo-Render-", 0).daemon(true).factory());
+    }
+
+    /**
+     * Stops the render workers, dropping renders that have not started yet.
+     */
+    public void close() {
+        if (renderExecutor == null) return;
+        renderExecutor.shutdownNow();
+        try {
+            renderExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
      * Updates the action bar for the player with coordinates, direction, time, biome, and waypoint info.
+     * <p>
+     * The message is only rebuilt when one of the displayed inputs changed, and an unchanged message is
+     * only resent once the keepalive interval has passed so the action bar does not fade out. With
+     * {@code action_bar.async_render} enabled, this only captures a snapshot of the player; the message
+     * is built and sent on a worker.
      */
     public void updatePlayerInfo(Player player) {
         if (player == null || !player.isOnline()) return;
 
-        var config = plugin.getConfiguration();
-        if (config == null) return;
+        // Only committed when the update exceeds the event's threshold
+        SlowRenderEvent event = new SlowRenderEvent();
+        event.begin();
+        update(player, event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = player.getName();
+            event.commit();
+        }
+    }
 
-        Set<String> prefs = plugin.getPlayerDisplayPrefs().getOrDefault(player.getUniqueId(), new HashSet<>());
+    private void update(Player player, SlowRenderEvent event) {
+        // The only map lookup per refresh, everything else hangs off the session
+        PlayerSession session = plugin.getSession(player.getUniqueId());
+        if (session == null) return;
+        PluginSettings settings = plugin.getSettings();
+        PlayerRenderState state = session.getRenderState();
+        if (state.isPlanStale()) {
+            state.setPlanMask(DisplayOption.toMask(session.getDisplayPrefs()) & settings.serverMask());
+        }
+
+        int plan = state.getPlanMask();
+        if (plan == 0) return;
+        event.plan = plan;
+
+        RenderSnapshot snapshot = capture(player, session, settings, plan);
+        if (renderExecutor == null) {
+            event.rebuilt = render(player, state, snapshot);
+        } else if (state.offer(snapshot)) {
+            renderExecutor.execute(() -> drain(player, state));
+        }
+    }
+
+    /**
+     * Reads everything the plan displays from the player and world. Runs on the thread ticking the player.
+     */
+    private RenderSnapshot capture(Player player, PlayerSession session, PluginSettings settings, int plan) {
         Location loc = player.getLocation();
-        World world = player.getWorld();
-
-        Component message = Component.empty();
-        boolean hasContent = false;
-
-        // ----------------- COORDINATES -----------------
-        if (prefs.contains("coordinates") && config.getBoolean("display_options.coordinates", false)) {
-            message = message.append(Component.text("XYZ: ", NamedTextColor.GOLD))
-                    .append(Component.text(loc.getBlockX() + " " + loc.getBlockY() + " " + loc.getBlockZ() + " ", NamedTextColor.WHITE));
-            hasContent = true;
-        }
-
-        // ----------------- DIRECTION -----------------
-        if (prefs.contains("direction") && config.getBoolean("display_options.direction", false)) {
-            message = message.append(Component.text(getDirection(loc) + " ", NamedTextColor.GOLD));
-            hasContent = true;
-        }
-
-        // ----------------- TIME -----------------
-        if (prefs.contains("time") && config.getBoolean("display_options.time", false) && world.getEnvironment() == World.Environment.NORMAL) {
-            long ticks = world.getTime();
-            int hour = (int) ((ticks / 1000 + 6) % 24);
-            int minute = (int) ((ticks % 1000) * 60 / 1000);
-            String meridian = hour < 12 ? "AM" : "PM";
-            int hour12 = hour % 12 == 0 ? 12 : hour % 12;
-
-            message = message.append(Component.text(String.format("%02d:%02d %s ", hour12, minute, meridian), NamedTextColor.WHITE));
-            hasContent = true;
-        }
-
-        // ----------------- BIOME -----------------
-        if (prefs.contains("biome") && config.getBoolean("display_options.biome", false)) {
-            String biomeName = formatBiomeName(loc.getBlock().getBiome());
-            message = message.append(Component.text("[" + biomeName + "] ", NamedTextColor.GREEN));
-            hasContent = true;
-        }
-
-        // ----------------- WAYPOINT -----------------
-        if (prefs.contains("waypoint") && config.getBoolean("display_options.waypoint", false)) {
-            String activeName = plugin.getActiveWaypointNames().get(player.getUniqueId());
-            List<Waypoint> waypoints = plugin.getPlayerWaypoints().get(player.getUniqueId());
-
-            if (activeName != null && waypoints != null) {
-                for (Waypoint wp : waypoints) {
-                    if (wp.getName().equalsIgnoreCase(activeName)) {
-                        Location wpLoc = wp.getLocation();
-
-                        if (!loc.getWorld().equals(wpLoc.getWorld())) {
-                            message = message.append(Component.text(
-                                    "WP: " + wp.getName() + " (in " + getWorldName(wpLoc.getWorld()) + ") ",
-                                    NamedTextColor.AQUA));
-                        } else {
-                            double distance = loc.distance(wpLoc);
-                            String dir = getWaypointDirection(loc, wpLoc);
-                            message = message.append(Component.text(
-                                    "WP: " + wp.getName() + " " + String.format("%.0f", distance) + "m " + dir + " ",
-                                    NamedTextColor.AQUA));
-                        }
-                        hasContent = true;
-                        break; // Only show active waypoint
-                    }
+        World world = loc.getWorld();
+
+        long worldTime = -1;
+        if (DisplayOption.TIME.isIn(plan) && world.getEnvironment() == World.Environment.NORMAL) {
+            worldTime = world.getTime();
+        }
+        Biome biome = null;
+        if (DisplayOption.BIOME.isIn(plan)) {
+            biome = session.getRenderState().lookupBiome(world, loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+        }
+        Waypoint waypoint = null;
+        if (DisplayOption.WAYPOINT.isIn(plan)) {
+            waypoint = session.getWaypoints().getActive();
+        }
+
+        return new RenderSnapshot(settings, plan, world, loc.getX(), loc.getY(), loc.getZ(), loc.getYaw(),
+                worldTime, biome, waypoint, Bukkit.getCurrentTick());
+    }
+
+    /**
+     * Renders the latest snapshots on a worker until none is left, so renders for one player never overlap.
+     */
+    private void drain(Player player, PlayerRenderState state) {
+        do {
+            RenderSnapshot snapshot;
+            while ((snapshot = state.poll()) != null) {
+                try {
+                    render(player, state, snapshot);
+                } catch (RuntimeException e) {
+                    plugin.getLogger().severe("Failed to render the action bar of " + player.getName() + ": " + e.getMessage());
                 }
             }
+        } while (state.finishRender());
+    }
+
+    /**
+     * Applies the snapshot to the player's render state and sends the message if it changed or the
+     * keepalive is due. Thread-safe as long as renders for one player do not overlap.
+     *
+     * @return whether the message had to be rebuilt
+     */
+    private boolean render(Player player, PlayerRenderState state, RenderSnapshot snapshot) {
+        int plan = snapshot.plan();
+        PluginSettings settings = snapshot.settings();
+
+        boolean sampled = state.shouldSample(settings.monitoring().sampleRate());
+        long[] timings = null;
+        if (sampled) {
+            timings = state.segmentNanos;
+            Arrays.fill(timings, 0);
         }
+        long mark = sampled ? System.nanoTime() : 0;
 
-        if (hasContent) {
-            player.sendActionBar(message);
+        // ----------------- APPLY INPUTS -----------------
+        boolean changed = state.consumeDirty();
+        if (DisplayOption.COORDINATES.isIn(plan)) {
+            changed |= state.setPosition(snapshot.world(), Location.locToBlock(snapshot.x()),
+                    Location.locToBlock(snapshot.y()), Location.locToBlock(snapshot.z()));
+            if (sampled) mark = lap(timings, DisplayOption.COORDINATES, mark);
         }
+        if (DisplayOption.DIRECTION.isIn(plan)) {
+            changed |= state.setYawOctant(getDirectionIndex(snapshot.yaw()));
+            if (sampled) mark = lap(timings, DisplayOption.DIRECTION, mark);
+        }
+        if (DisplayOption.TIME.isIn(plan)) {
+            changed |= state.setMinuteOfDay(snapshot.worldTime() >= 0 ? getMinuteOfDay(snapshot.worldTime()) : -1);
+            if (sampled) mark = lap(timings, DisplayOption.TIME, mark);
+        }
+        if (DisplayOption.BIOME.isIn(plan)) {
+            changed |= state.setBiome(snapshot.biome(), biomeNames);
+            if (sampled) mark = lap(timings, DisplayOption.BIOME, mark);
+        }
+        if (DisplayOption.WAYPOINT.isIn(plan)) {
+            changed |= applyWaypoint(state, snapshot);
+            if (sampled) mark = lap(timings, DisplayOption.WAYPOINT, mark);
+        }
+        if (DisplayOption.NEAREST.isIn(plan)) {
+            changed |= applyNearest(state, snapshot);
+            if (sampled) lap(timings, DisplayOption.NEAREST, mark);
+        }
+
+        int tick = snapshot.tick();
+        boolean keepaliveDue = tick - state.getLastSentTick() >= settings.actionBar().keepaliveTicks();
+
+        if (!changed) {
+            if (sampled) recordSegments(plan, timings);
+            unchanged.inc();
+            if (keepaliveDue && state.getLastMessage() != null) {
+                player.sendActionBar(state.getLastMessage());
+                state.markSent(state.getLastMessage(), tick);
+                keepalives.inc();
+            }
+            return false;
+        }
+
+        Component message = settings.actionBar().layout().render(state, plan, timings);
+        if (sampled) recordSegments(plan, timings);
+        rendered.inc();
+        if (message == null) {
+            state.markSent(null, tick);
+            return true;
+        }
+
+        // Skip resending an identical message until the keepalive is due
+        if (!keepaliveDue && message.equals(state.getLastMessage())) return true;
+
+        player.sendActionBar(message);
+        state.markSent(message, tick);
+        return true;
     }
 
-    // ----------------- UTILS -----------------
+    /**
+     * Marks the player's action bar as stale so the next refresh re-renders it.
+     */
+    public void invalidate(UUID uuid) {
+        PlayerSession session = plugin.getSession(uuid);
+        if (session != null) session.getRenderState().invalidate();
+    }
+
+    /**
+     * Marks every action bar as stale, e.g. after the settings were reloaded, so plans are recompiled and messages rebuilt.
+     */
+    public void invalidateAll() {
+        plugin.getSessions().values().forEach(session -> session.getRenderState().invalidate());
+    }
+
+    private boolean applyWaypoint(PlayerRenderState state, RenderSnapshot snapshot) {
+        Waypoint wp = snapshot.waypoint();
+        if (wp == null) return state.setWaypoint(null, -1, -1);
+
+        Location wpLoc = wp.getLocation();
+        if (!snapshot.world().equals(wpLoc.getWorld())) {
+            return state.setWaypoint(wp, -1, -1);
+        }
+        double dx = wpLoc.getX() - snapshot.x(), dy = wpLoc.getY() - snapshot.y(), dz = wpLoc.getZ() - snapshot.z();
+        long distance = Math.round(Math.sqrt(dx * dx + dy * dy + dz * dz));
+        return state.setWaypoint(wp, distance, getWaypointDirectionIndex(dx, dz));
+    }
+
+    private boolean applyNearest(PlayerRenderState state, RenderSnapshot snapshot) {
+        // Looked up from the spatial index on the render thread, the index never locks
+        Waypoint nearest = plugin.getPublicWaypoints().nearest(snapshot.world(), snapshot.x(), snapshot.y(), snapshot.z());
+        if (nearest == null) return state.setNearest(null, -1, -1);
+
+        Location loc = nearest.getLocation();
+        double dx = loc.getX() - snapshot.x(), dy = loc.getY() - snapshot.y(), dz = loc.getZ() - snapshot.z();
+        long distance = Math.round(Math.sqrt(dx * dx + dy * dy + dz * dz));
+        return state.setNearest(nearest, distance, getWaypointDirectionIndex(dx, dz));
+    }
+
+    // ----------------- METRICS -----------------
 
-    private String getWorldName(World world) {
-        return switch (world.getEnvironment()) {
-            case NORMAL -> "Overworld";
-            case NETHER -> "Nether";
-            case THE_END -> "End";
-            default -> "Unknown";
-        };
+    private static long lap(long[] timings, DisplayOption option, long mark) {
+        long now = System.nanoTime();
+        timings[option.ordinal()] += now - mark;
+        return now;
     }
 
-    private String formatBiomeName(Biome biome) {
-        String[] parts = biome.getKey().getKey().split("_");
-        StringBuilder sb = new StringBuilder();
-        for (String part : parts) {
-            if (!sb.isEmpty()) sb.append(" ");
-            sb.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1).toLowerCase());
+    private void recordSegments(int plan, long[] timings) {
+        for (DisplayOption option : DisplayOption.values()) {
+            if (option.isIn(plan)) segmentTime[option.ordinal()].record(timings[option.ordinal()]);
         }
-        return sb.toString();
     }
 
-    private String getDirection(Location loc) {
-        float yaw = (loc.getYaw() + 360) % 360;
-        int index = (int) Math.floor((yaw + 22.5) / 45) % 8;
-        return DIRECTIONS[index];
+    // ----------------- UTILS -----------------
+
+    private int getDirectionIndex(float rawYaw) {
+        float yaw = (rawYaw + 360) % 360;
+        return (int) Math.floor((yaw + 22.5) / 45) % 8;
     }
 
-    private String getWaypointDirection(Location from, Location to) {
-        double dx = to.getX() - from.getX();
-        double dz = to.getZ() - from.getZ();
+    private int getWaypointDirectionIndex(double dx, double dz) {
         double angle = Math.toDegrees(Math.atan2(dx, -dz));
         if (angle < 0) angle += 360;
-        return WAYPOINT_DIRECTIONS[(int) Math.round(angle / 45) % 8];
+        return (int) Math.round(angle / 45) % 8;
+    }
+
+    private int getMinuteOfDay(long ticks) {
+        return (int) ((ticks % 24000) / 1000 * 60 + (ticks % 1000) * 60 / 1000);
+    }
+
+    @EventHandler
+    public void onServerLoad(ServerLoadEvent event) {
+        // Datapacks may have changed the biome registry
+        biomeNames.refresh();
     }
 
     @EventHandler
-    public void onPlayerJoin(PlayerJoinEvent event) {
-        plugin.initializePlayerPrefs(event.getPlayer());
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        // The session may outlive the player until their writes are flushed, a quick rejoin must resend the action bar
+        invalidate(event.getPlayer().getUniqueId());
     }
 }
@@ -12,47 +12,104 @@ import me.rrs.titleInfo.commands.TitleInfoCommand;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 public final class TitleInfo extends JavaPlugin {
 
-    // Config & Database
-    private YamlDocument config;
-    private DatabaseManager dbManager;
+    // Config & Database; runtime code reads the settings snapshot, which a reload swaps as a whole
+    private volatile YamlDocument config;
+    private final AtomicReference<PluginSettings> settings = new AtomicReference<>();
+    private PlayerStorage dbManager;
 
-    // Player Data
-    private final Map<UUID, Set<String>> playerDisplayPrefs = new HashMap<>();
-    private final Map<UUID, List<Waypoint>> playerWaypoints = new HashMap<>();
-    private final Map<UUID, String> activeWaypointNames = new HashMap<>();
+    // Player Data, held while the player is online (see PlayerDataLoader)
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+    private PlayerDataLoader dataLoader;
+    private CacheCoherence coherence;
+
+    // Server-wide waypoints, held for the whole session
+    private PublicWaypoints publicWaypoints;
 
     // Title handler
     private Title title;
 
+    // Tab completion indexes
+    private TabCompletions tabCompletions;
+
+    // Coordinate share rate limits
+    private ShareLimiter shareLimiter;
+
+    // Region-aware scheduling, works on both Paper and Folia
+    private final TaskScheduler taskScheduler = new TaskScheduler(this);
+
+    // Metrics, registered by the components they measure
+    private final Metrics metrics = new Metrics();
+    private MetricsServer metricsServer;
+
     // Update checker
     private static final String SPIGOT_RESOURCE_ID = "YOUR_RESOURCE_ID";
-    private String latestVersion;
+    private UpdateAPI updateChecker;
+    private volatile String latestVersion;
 
     public YamlDocument getConfiguration() {
         return config;
     }
 
-    public Map<UUID, Set<String>> getPlayerDisplayPrefs() {
-        return playerDisplayPrefs;
+    public PluginSettings getSettings() {
+        return settings.get();
+    }
+
+    public Map<UUID, PlayerSession> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * The player's cached session, or {@code null} if their data is not loaded.
+     */
+    public PlayerSession getSession(UUID uuid) {
+        return sessions.get(uuid);
+    }
+
+    public PublicWaypoints getPublicWaypoints() {
+        return publicWaypoints;
+    }
+
+    public Title getTitle() {
+        return title;
+    }
+
+    public PlayerDataLoader getDataLoader() {
+        return dataLoader;
+    }
+
+    public TabCompletions getTabCompletions() {
+        return tabCompletions;
+    }
+
+    public ShareLimiter getShareLimiter() {
+        return shareLimiter;
+    }
+
+    public CacheCoherence getCoherence() {
+        return coherence;
     }
 
-    public Map<UUID, List<Waypoint>> getPlayerWaypoints() {
-        return playerWaypoints;
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
     }
 
-    public Map<UUID, String> getActiveWaypointNames() {
-        return activeWaypointNames;
+    public Metrics getMetrics() {
+        return metrics;
     }
 
-    public DatabaseManager getDbManager() {
+    public PlayerStorage getDbManager() {
         return dbManager;
     }
 
@@ -66,28 +123,71 @@ public final class TitleInfo extends JavaPlugin {
         // Load configuration
         try {
             loadConfigurations();
+            settings.set(PluginSettings.parse(config));
         } catch (IOException e) {
             getLogger().severe("Failed to load configurations! Disabling plugin.");
             e.printStackTrace();
             getServer().getPluginManager().disablePlugin(this);
             return;
+        } catch (IllegalArgumentException e) {
+            getLogger().severe("Invalid config.yml: " + e.getMessage() + ". Disabling plugin.");
+            getServer().getPluginManager().disablePlugin(this);
+            return;
         }
 
+        metrics.gauge("titleinfo_cache_players", "Players with a cached session", sessions::size);
+        metrics.gauge("titleinfo_cache_waypoints", "Cached waypoints across all players",
+                () -> sessions.values().stream().mapToInt(session -> session.getWaypoints().size()).sum());
+
         // Setup database
-        dbManager = new DatabaseManager(this);
-        dbManager.loadAllData(playerDisplayPrefs, playerWaypoints, activeWaypointNames);
+        try {
+            dbManager = new DatabaseManager(this);
+        } catch (SQLException e) {
+            getLogger().severe("Failed to open the database! Disabling plugin.");
+            e.printStackTrace();
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
+
+        // Load public waypoints into their spatial index
+        publicWaypoints = new PublicWaypoints(getSettings().waypoints().publicCellSize());
+        publicWaypoints.load(dbManager.getPublicWaypoints());
+        metrics.gauge("titleinfo_public_waypoints", "Public waypoints in loaded worlds", publicWaypoints::size);
 
         // Initialize title handler
         title = new Title(this);
         getServer().getPluginManager().registerEvents(title, this);
 
-        // Register command
+        // Load player data on login, starting with players already online
+        coherence = new CacheCoherence(this);
+        dataLoader = new PlayerDataLoader(this);
+        getServer().getPluginManager().registerEvents(dataLoader, this);
+        dataLoader.start();
+        dataLoader.loadOnlinePlayers();
+
+        // Pick up changes other servers make to the shared database
+        if (dbManager.isSyncEnabled()) coherence.start();
+
+        // Register command, tab completion is answered from indexes kept up to date by events
+        tabCompletions = new TabCompletions(getSettings());
+        getServer().getPluginManager().registerEvents(tabCompletions, this);
+        shareLimiter = new ShareLimiter(this);
+        shareLimiter.start();
         TitleInfoCommand commandExecutor = new TitleInfoCommand(this);
         Objects.requireNonNull(getCommand("titleinfo")).setExecutor(commandExecutor);
         getCommand("titleinfo").setTabCompleter(commandExecutor);
 
-        // Schedule action bar updates
-        new ActionBarUpdateTask().runTaskTimer(this, 0L, 1L);
+        // Schedule action bar updates, spread across ticks, or across regions on Folia
+        if (TaskScheduler.isFolia()) {
+            PlayerRenderTasks renderTasks = new PlayerRenderTasks(this, title);
+            getServer().getPluginManager().registerEvents(renderTasks, this);
+            renderTasks.startOnlinePlayers();
+        } else {
+            taskScheduler.runGlobalTimer(new ActionBarScheduler(this, title), 1L, 1L);
+        }
+
+        // Expose metrics to scrapers if enabled
+        if (getSettings().monitoring().httpEnabled()) startMetricsServer();
 
         // Check for updates
         checkForUpdates();
@@ -95,11 +195,12 @@ public final class TitleInfo extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        taskScheduler.cancelAll();
+        if (title != null) title.close();
+        if (metricsServer != null) metricsServer.stop();
+        if (updateChecker != null) updateChecker.close();
         if (dbManager != null) {
-            // Save all player data
-            playerDisplayPrefs.forEach(dbManager::savePlayerDisplayPrefs);
-            playerWaypoints.forEach(dbManager::savePlayerWaypoints);
-            activeWaypointNames.forEach(dbManager::saveActiveWaypointName);
+            // Every change is already queued, flush whatever the writer has not committed yet
             dbManager.close();
         }
     }
@@ -109,11 +210,31 @@ public final class TitleInfo extends JavaPlugin {
     // ========================
     private void loadConfigurations() throws IOException {
         config = createYamlDocument("config.yml", "Config.Version");
+    }
 
-        // Initialize online players
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            initializePlayerPrefs(player);
-        }
+    /**
+     * Re-reads config.yml off the main thread and publishes the new settings in one swap, then has
+     * every action bar recompiled. An invalid config is rejected as a whole and the current settings stay.
+     *
+     * @return completes with the config sections whose changes need a restart, or exceptionally if the config was rejected
+     */
+    public CompletableFuture<List<String>> reloadSettings() {
+        CompletableFuture<List<String>> reloaded = new CompletableFuture<>();
+        taskScheduler.runAsync(() -> {
+            try {
+                YamlDocument document = createYamlDocument("config.yml", "Config.Version");
+                PluginSettings next = PluginSettings.parse(document);
+
+                PluginSettings previous = settings.getAndSet(next);
+                config = document;
+                tabCompletions.reloadDisplayTypes(next);
+                title.invalidateAll();
+                reloaded.complete(next.restartRequired(previous));
+            } catch (IOException | RuntimeException e) {
+                reloaded.completeExceptionally(e);
+            }
+        });
+        return reloaded;
     }
 
     private YamlDocument createYamlDocument(String fileName, String versionKey) throws IOException {
@@ -136,24 +257,19 @@ public final class TitleInfo extends JavaPlugin {
         );
     }
 
-    public void initializePlayerPrefs(Player player) {
-        UUID uuid = player.getUniqueId();
-        if (!playerDisplayPrefs.containsKey(uuid)) {
-            Set<String> enabledOptions = dbManager.getPlayerDisplayPrefs(uuid);
-
-            // Enable default options if none exist
-            if (enabledOptions.isEmpty() && config != null) {
-                for (Object keyObj : config.getSection("display_options").getKeys()) {
-                    String option = keyObj.toString();
-                    if (config.getBoolean("display_options." + option, false)) {
-                        enabledOptions.add(option);
-                    }
-                }
-            }
-
-            playerDisplayPrefs.put(uuid, enabledOptions);
-            dbManager.savePlayerDisplayPrefs(uuid, enabledOptions);
-            getLogger().info("Initialized prefs for " + player.getName() + ": " + enabledOptions);
+    // ========================
+    // Metrics
+    // ========================
+    private void startMetricsServer() {
+        String host = getSettings().monitoring().httpHost();
+        int port = getSettings().monitoring().httpPort();
+        metricsServer = new MetricsServer(metrics);
+        try {
+            metricsServer.start(host, port);
+            getLogger().info("Serving metrics at http://" + host + ":" + port + "/metrics");
+        } catch (IOException e) {
+            getLogger().severe("Failed to start the metrics endpoint on " + host + ":" + port + ": " + e.getMessage());
+            metricsServer = null;
         }
     }
 
@@ -161,51 +277,45 @@ public final class TitleInfo extends JavaPlugin {
     // Updates
     // ========================
     private void checkForUpdates() {
-        UpdateAPI updateAPI = new UpdateAPI();
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                try {
-                    String currentVersion = getDescription().getVersion();
-                    latestVersion = updateAPI.getSpigotVersion(SPIGOT_RESOURCE_ID, TitleInfo.this);
-
-                    if (latestVersion != null && !currentVersion.equals(latestVersion)) {
-                        getLogger().warning("§6[TitleInfo] §eA new version (§f" + latestVersion + "§e) is available! You’re running §f" + currentVersion + "§e.");
-                        getLogger().warning("§eDownload it at: §fhttps://www.spigotmc.org/resources/" + SPIGOT_RESOURCE_ID + "/");
-                        notifyAdminsOfUpdate();
-                    } else {
-                        getLogger().info("§a[TitleInfo] You’re running the latest version (§f" + currentVersion + "§a)!");
-                    }
-                } catch (Exception e) {
-                    getLogger().warning("§c[TitleInfo] Failed to check for updates: " + e.getMessage());
-                }
-            }
-        }.runTaskAsynchronously(this);
+        PluginSettings.Updates settings = getSettings().updates();
+        if (!settings.enabled()) return;
+
+        URI endpoint;
+        try {
+            endpoint = URI.create(settings.url().replace("{resource}", SPIGOT_RESOURCE_ID));
+        } catch (IllegalArgumentException e) {
+            getLogger().warning("§c[TitleInfo] Invalid update_checker.url, not checking for updates: " + e.getMessage());
+            return;
+        }
+        updateChecker = new UpdateAPI(getLogger(), endpoint, new File(getDataFolder(), "update-cache.properties"), settings);
+
+        // Cheap while the cached result is fresh or a retry is not due, only then does a request go out
+        long period = Math.max(1, settings.retryMinMs() / 50);
+        taskScheduler.runAsyncTimer(() -> updateChecker.getLatestVersion().thenAccept(this::onLatestVersion), 1L, period);
     }
 
-    private void notifyAdminsOfUpdate() {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                for (Player player : Bukkit.getOnlinePlayers()) {
-                    if (player.hasPermission("titleinfo.admin")) {
-                        player.sendMessage("§6[TitleInfo] §eA new version (§f" + latestVersion + "§e) is available!");
-                        player.sendMessage("§eYou’re running §f" + getDescription().getVersion() + "§e. Update at: §fhttps://www.spigotmc.org/resources/" + SPIGOT_RESOURCE_ID + "/");
-                    }
-                }
-            }
-        }.runTask(this);
+    private void onLatestVersion(String version) {
+        if (version == null || version.equals(latestVersion)) return;
+        latestVersion = version;
+
+        String currentVersion = getDescription().getVersion();
+        if (!currentVersion.equals(version)) {
+            getLogger().warning("§6[TitleInfo] §eA new version (§f" + version + "§e) is available! You’re running §f" + currentVersion + "§e.");
+            getLogger().warning("§eDownload it at: §fhttps://www.spigotmc.org/resources/" + SPIGOT_RESOURCE_ID + "/");
+            notifyAdminsOfUpdate();
+        } else {
+            getLogger().info("§a[TitleInfo] You’re running the latest version (§f" + currentVersion + "§a)!");
+        }
     }
 
-    // ========================
-    // Inner class: Action Bar Updates
-    // ========================
-    private class ActionBarUpdateTask extends BukkitRunnable {
-        @Override
-        public void run() {
+    private void notifyAdminsOfUpdate() {
+        taskScheduler.runGlobal(() -> {
             for (Player player : Bukkit.getOnlinePlayers()) {
-                title.updatePlayerInfo(player);
+                if (player.hasPermission("titleinfo.admin")) {
+                    player.sendMessage("§6[TitleInfo] §eA new version (§f" + latestVersion + "§e) is available!");
+                    player.sendMessage("§eYou’re running §f" + getDescription().getVersion() + "§e. Update at: §fhttps://www.spigotmc.org/resources/" + SPIGOT_RESOURCE_ID + "/");
+                }
             }
-        }
+        });
     }
 }
@@ -1,57 +1,166 @@
 package me.rrs.titleInfo;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.util.Scanner;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
 
+/**
+ * Looks up the latest released version without ever blocking a server thread.
+ * <p>
+ * Requests are sent with {@link HttpClient#sendAsync} under strict connect and response timeouts. A successful
+ * result is cached on disk for {@code cache_ttl}, so restarts within that window do not touch the network.
+ * Failures are retried after a delay that doubles with every consecutive failure, also persisted across restarts.
+ * The endpoint is a plain URL, so the checker can be pointed at a local HTTP stub.
+ */
 public class UpdateAPI {
-    public String getSpigotVersion(String resourceId, TitleInfo plugin) {
-        String newVersion = plugin.getDescription().getVersion();
 
-        try {
-            InputStream inputStream = (new URI("https://api.spigotmc.org/legacy/update.php?resource=" + resourceId)).toURL().openStream();
-
-            try {
-                Scanner scanner = new Scanner(inputStream);
-
-                try {
-                    if (scanner.hasNext()) {
-                        newVersion = String.valueOf(scanner.next());
-                    }
-                } catch (Throwable var10) {
-                    try {
-                        scanner.close();
-                    } catch (Throwable var9) {
-                        var10.addSuppressed(var9);
-                    }
-
-                    throw var10;
-                }
-
-                scanner.close();
-            } catch (Throwable var11) {
-                if (inputStream != null) {
-                    try {
-                        inputStream.close();
-                    } catch (Throwable var8) {
-                        var11.addSuppressed(var8);
-                    }
-                }
-
-                throw var11;
-            }
+    // Version strings are short, anything longer is not a version
+    private static final int MAX_VERSION_LENGTH = 64;
+
+    private final Logger logger;
+    private final URI endpoint;
+    private final File cacheFile;
+    private final HttpClient client;
+    private final Duration timeout;
+    private final long cacheTtlMs;
+    private final long retryMinMs;
+    private final long retryMaxMs;
+
+    // Guarded by this, mirrored in the cache file
+    private String cachedVersion;
+    private long checkedAt;
+    private int failures;
+    private long retryAt;
+    private CompletableFuture<String> inFlight;
 
-            if (inputStream != null) {
-                inputStream.close();
+    public UpdateAPI(Logger logger, URI endpoint, File cacheFile, PluginSettings.Updates settings) {
+        this(logger, endpoint, cacheFile, settings,
+                HttpClient.newBuilder()
+                        .connectTimeout(Duration.ofMillis(settings.timeoutMs()))
+                        .followRedirects(HttpClient.Redirect.NORMAL)
+                        .build());
+    }
+
+    UpdateAPI(Logger logger, URI endpoint, File cacheFile, PluginSettings.Updates settings, HttpClient client) {
+        this.logger = logger;
+        this.endpoint = endpoint;
+        this.cacheFile = cacheFile;
+        this.client = client;
+        this.timeout = Duration.ofMillis(settings.timeoutMs());
+        this.cacheTtlMs = settings.cacheTtlMs();
+        this.retryMinMs = settings.retryMinMs();
+        this.retryMaxMs = settings.retryMaxMs();
+        readCache();
+    }
+
+    /**
+     * The latest version, from the cache while it is fresh or the checker is backing off, otherwise from the endpoint.
+     *
+     * @return completes with the version, or {@code null} if it is not known yet; never completes exceptionally
+     */
+    public synchronized CompletableFuture<String> getLatestVersion() {
+        long now = System.currentTimeMillis();
+        if (cachedVersion != null && now - checkedAt < cacheTtlMs) return CompletableFuture.completedFuture(cachedVersion);
+        if (now < retryAt) return CompletableFuture.completedFuture(cachedVersion);
+        if (inFlight != null) return inFlight;
+
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("User-Agent", "TitleInfo update checker")
+                .GET()
+                .build();
+        CompletableFuture<String> check = client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle(this::complete);
+        // A check that failed right away has already run complete() on this thread
+        if (!check.isDone()) inFlight = check;
+        return check;
+    }
+
+    private synchronized String complete(HttpResponse<String> response, Throwable error) {
+        inFlight = null;
+        long now = System.currentTimeMillis();
+
+        String version = error == null ? parseVersion(response) : null;
+        if (version != null) {
+            cachedVersion = version;
+            checkedAt = now;
+            failures = 0;
+            retryAt = 0;
+        } else {
+            String reason = error != null ? String.valueOf(error.getMessage()) : "HTTP " + response.statusCode() + " or no version in the response";
+            // Doubles from retry_min up to retry_max, the shift is capped so it cannot overflow
+            long delay = Math.min(retryMaxMs, retryMinMs << Math.min(failures, 20));
+            failures++;
+            retryAt = now + delay;
+            logger.warning("Failed to check for updates (" + reason + "), retrying in " + delay / 60_000L + " minutes.");
+        }
+
+        writeCache();
+        return cachedVersion;
+    }
+
+    private static String parseVersion(HttpResponse<String> response) {
+        if (response.statusCode() != 200) return null;
+        String body = response.body().trim();
+        if (body.isEmpty()) return null;
+        String version = body.split("\\s+", 2)[0];
+        return version.length() <= MAX_VERSION_LENGTH ? version : null;
+    }
+
+    // -------------------- Cache file --------------------
+
+    private void readCache() {
+        if (!cacheFile.isFile()) return;
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile.toPath())) {
+            properties.load(in);
+            // A cache written for another endpoint says nothing about this one
+            if (!endpoint.toString().equals(properties.getProperty("endpoint"))) return;
+            cachedVersion = properties.getProperty("version");
+            checkedAt = Long.parseLong(properties.getProperty("checked_at", "0"));
+            failures = Integer.parseInt(properties.getProperty("failures", "0"));
+            retryAt = Long.parseLong(properties.getProperty("retry_at", "0"));
+        } catch (IOException | NumberFormatException e) {
+            logger.warning("Ignoring unreadable update cache " + cacheFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void writeCache() {
+        Properties properties = new Properties();
+        properties.setProperty("endpoint", endpoint.toString());
+        if (cachedVersion != null) properties.setProperty("version", cachedVersion);
+        properties.setProperty("checked_at", Long.toString(checkedAt));
+        properties.setProperty("failures", Integer.toString(failures));
+        properties.setProperty("retry_at", Long.toString(retryAt));
+
+        // Written next to the cache and moved over it, so a crash never leaves a partial file
+        File temp = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+        try {
+            Files.createDirectories(cacheFile.getParentFile().toPath());
+            try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+                properties.store(out, "TitleInfo update check");
             }
-        } catch (IOException ioException) {
-            ioException.printStackTrace();
-        } catch (URISyntaxException e) {
-            throw new RuntimeException(e);
+            Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Failed to write the update cache: " + e.getMessage());
         }
+    }
 
-        return newVersion;
+    /**
+     * Abandons a check that is still running.
+     */
+    public void close() {
+        client.shutdownNow();
     }
 }
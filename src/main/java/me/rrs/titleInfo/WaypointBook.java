@@ -0,0 +1,136 @@
+package me.rrs.titleInfo;
+
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A player's waypoints, indexed by case-folded name, together with the waypoint shown on the action bar.
+ * <p>
+ * The active waypoint is held by reference: replacing a waypoint of the same name moves the reference
+ * to the new one, and removing it clears the reference, so the render path never has to look it up.
+ * <p>
+ * Books are shared between region threads on Folia. Changes are synchronized, while the active
+ * waypoint and the name index for tab completion are read without locking.
+ */
+public class WaypointBook {
+
+    private final Map<String, Waypoint> waypoints = new LinkedHashMap<>();
+    private final PrefixIndex names = new PrefixIndex();
+    private volatile Waypoint active;
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    public synchronized Waypoint get(String name) {
+        return waypoints.get(key(name));
+    }
+
+    /**
+     * Adds the waypoint, replacing any waypoint with the same name regardless of case.
+     *
+     * @return the replaced waypoint, or {@code null}
+     */
+    public synchronized Waypoint put(Waypoint waypoint) {
+        String key = key(waypoint.getName());
+        Waypoint previous = waypoints.remove(key);
+        waypoints.put(key, waypoint);
+        names.add(waypoint.getName());
+        if (previous != null && previous == active) active = waypoint;
+        return previous;
+    }
+
+    /**
+     * Removes the waypoint with the given name, clearing the active waypoint if it was the one removed.
+     *
+     * @return the removed waypoint, or {@code null} if there was none
+     */
+    public synchronized Waypoint remove(String name) {
+        Waypoint removed = waypoints.remove(key(name));
+        if (removed != null) names.remove(name);
+        if (removed != null && removed == active) active = null;
+        return removed;
+    }
+
+    public Waypoint getActive() {
+        return active;
+    }
+
+    /**
+     * Sets the active waypoint; it must belong to this book, or be {@code null} to clear it.
+     */
+    public synchronized void setActive(Waypoint waypoint) {
+        this.active = waypoint;
+    }
+
+    /**
+     * A snapshot of the waypoints in insertion order.
+     */
+    public synchronized Collection<Waypoint> getWaypoints() {
+        return List.copyOf(waypoints.values());
+    }
+
+    /**
+     * Up to {@code limit} waypoint names starting with {@code prefix}, regardless of case.
+     */
+    public List<String> completeNames(String prefix, int limit) {
+        return names.complete(prefix, limit);
+    }
+
+    /**
+     * The waypoints sorted as by {@link #sort(Collection, Location)}.
+     */
+    public List<Waypoint> getSorted(Location origin) {
+        return sort(getWaypoints(), origin);
+    }
+
+    /**
+     * Sorts waypoints by name, or by distance from {@code origin} when given, with waypoints in
+     * other worlds last. Squared distances are computed once per waypoint, not per comparison.
+     */
+    public static List<Waypoint> sort(Collection<Waypoint> waypoints, Location origin) {
+        Waypoint[] sorted = waypoints.toArray(new Waypoint[0]);
+        Comparator<Waypoint> byName = Comparator.comparing(Waypoint::getName, String.CASE_INSENSITIVE_ORDER);
+        if (origin == null) {
+            Arrays.sort(sorted, byName);
+            return Arrays.asList(sorted);
+        }
+
+        double[] distances = new double[sorted.length];
+        Integer[] order = new Integer[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            order[i] = i;
+            distances[i] = distanceSquared(sorted[i].getLocation(), origin);
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> distances[i]).thenComparing(i -> sorted[i], byName));
+
+        List<Waypoint> result = new ArrayList<>(sorted.length);
+        for (int i : order) result.add(sorted[i]);
+        return result;
+    }
+
+    /**
+     * Squared distance between two locations, infinite if they are in different worlds.
+     */
+    public static double distanceSquared(Location a, Location b) {
+        if (a.getWorld() != b.getWorld()) return Double.POSITIVE_INFINITY;
+        double dx = a.getX() - b.getX(), dy = a.getY() - b.getY(), dz = a.getZ() - b.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public synchronized int size() {
+        return waypoints.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return waypoints.isEmpty();
+    }
+}
@@ -0,0 +1,203 @@
+package me.rrs.titleInfo;
+
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable spatial index of the waypoints of one world, bucketed into square cells on the x/z plane.
+ * <p>
+ * Waypoints are stored grouped by cell, with their coordinates in flat arrays, and cells are found
+ * through an open-addressing table keyed by the packed cell coordinates, so queries neither box
+ * keys nor allocate. A nearest query searches rings of cells outwards from the player's cell and
+ * stops once no unvisited cell can hold anything closer than the best match so far.
+ */
+final class WaypointGrid {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int cellSize;
+
+    // Waypoints grouped by cell, coordinates parallel to them
+    private final Waypoint[] waypoints;
+    private final double[] xs, ys, zs;
+
+    // Open-addressing table: packed cell coordinates -> range in the arrays above
+    private final long[] cellKeys;
+    private final int[] cellStarts, cellEnds;
+    private final int mask;
+
+    // Bounds of the occupied cells
+    private final int minCellX, maxCellX, minCellZ, maxCellZ;
+
+    private WaypointGrid(int cellSize, Waypoint[] sorted, long[] keys) {
+        this.cellSize = cellSize;
+        this.waypoints = sorted;
+        this.xs = new double[sorted.length];
+        this.ys = new double[sorted.length];
+        this.zs = new double[sorted.length];
+
+        int cells = 0;
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minZ = Integer.MAX_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < sorted.length; i++) {
+            Location loc = sorted[i].getLocation();
+            xs[i] = loc.getX();
+            ys[i] = loc.getY();
+            zs[i] = loc.getZ();
+            if (i == 0 || keys[i] != keys[i - 1]) cells++;
+            int cx = (int) (keys[i] >> 32), cz = (int) keys[i];
+            minX = Math.min(minX, cx);
+            maxX = Math.max(maxX, cx);
+            minZ = Math.min(minZ, cz);
+            maxZ = Math.max(maxZ, cz);
+        }
+        this.minCellX = minX;
+        this.maxCellX = maxX;
+        this.minCellZ = minZ;
+        this.maxCellZ = maxZ;
+
+        int capacity = Integer.highestOneBit(Math.max(1, cells) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.cellKeys = new long[capacity];
+        this.cellStarts = new int[capacity];
+        this.cellEnds = new int[capacity];
+        Arrays.fill(cellKeys, EMPTY);
+
+        for (int start = 0; start < sorted.length; ) {
+            int end = start + 1;
+            while (end < sorted.length && keys[end] == keys[start]) end++;
+            int slot = slot(keys[start]);
+            while (cellKeys[slot] != EMPTY) slot = (slot + 1) & mask;
+            cellKeys[slot] = keys[start];
+            cellStarts[slot] = start;
+            cellEnds[slot] = end;
+            start = end;
+        }
+    }
+
+    static WaypointGrid build(List<Waypoint> waypoints, int cellSize) {
+        int size = Math.max(1, cellSize);
+        Waypoint[] sorted = waypoints.toArray(new Waypoint[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(wp -> key(wp.getLocation(), size)));
+        long[] keys = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) keys[i] = key(sorted[i].getLocation(), size);
+        return new WaypointGrid(size, sorted, keys);
+    }
+
+    int size() {
+        return waypoints.length;
+    }
+
+    /**
+     * The waypoint closest to the position, or {@code null} if the world has none.
+     */
+    Waypoint nearest(double x, double y, double z) {
+        if (waypoints.length == 0) return null;
+
+        int cx = cell(x), cz = cell(z);
+        // Rings closer than the occupied bounds are empty, the last ring covers all of them
+        int firstRing = Math.max(Math.max(minCellX - cx, cx - maxCellX), Math.max(minCellZ - cz, cz - maxCellZ));
+        int lastRing = Math.max(Math.max(cx - minCellX, maxCellX - cx), Math.max(cz - minCellZ, maxCellZ - cz));
+
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int ring = Math.max(0, firstRing); ring <= lastRing; ring++) {
+            // Every cell of this ring is at least (ring - 1) cells away horizontally
+            if (best >= 0 && ring > 1) {
+                double bound = (double) (ring - 1) * cellSize;
+                if (bound * bound > bestDistance) break;
+            }
+
+            int fromX = Math.max(cx - ring, minCellX), toX = Math.min(cx + ring, maxCellX);
+            int fromZ = Math.max(cz - ring + 1, minCellZ), toZ = Math.min(cz + ring - 1, maxCellZ);
+            for (int gx = fromX; gx <= toX; gx++) {
+                best = closest(gx, cz - ring, x, y, z, best, bestDistance);
+                if (best >= 0) bestDistance = distanceSquared(best, x, y, z);
+                if (ring == 0) continue;
+                best = closest(gx, cz + ring, x, y, z, best, bestDistance);
+                if (best >= 0) bestDistance = distanceSquared(best, x, y, z);
+            }
+            if (ring == 0) continue;
+            for (int gz = fromZ; gz <= toZ; gz++) {
+                best = closest(cx - ring, gz, x, y, z, best, bestDistance);
+                if (best >= 0) bestDistance = distanceSquared(best, x, y, z);
+                best = closest(cx + ring, gz, x, y, z, best, bestDistance);
+                if (best >= 0) bestDistance = distanceSquared(best, x, y, z);
+            }
+        }
+        return best >= 0 ? waypoints[best] : null;
+    }
+
+    /**
+     * Adds the waypoints within {@code radius} blocks of the position to {@code out}, closest first.
+     */
+    void within(double x, double y, double z, double radius, List<Waypoint> out) {
+        if (waypoints.length == 0) return;
+
+        double radiusSquared = radius * radius;
+        int fromX = Math.max(cell(x - radius), minCellX), toX = Math.min(cell(x + radius), maxCellX);
+        int fromZ = Math.max(cell(z - radius), minCellZ), toZ = Math.min(cell(z + radius), maxCellZ);
+
+        List<Integer> found = new ArrayList<>();
+        for (int gx = fromX; gx <= toX; gx++) {
+            for (int gz = fromZ; gz <= toZ; gz++) {
+                int slot = find(pack(gx, gz));
+                if (slot < 0) continue;
+                for (int i = cellStarts[slot]; i < cellEnds[slot]; i++) {
+                    if (distanceSquared(i, x, y, z) <= radiusSquared) found.add(i);
+                }
+            }
+        }
+        found.sort(Comparator.comparingDouble(i -> distanceSquared(i, x, y, z)));
+        for (int i : found) out.add(waypoints[i]);
+    }
+
+    private int closest(int gx, int gz, double x, double y, double z, int best, double bestDistance) {
+        if (gz < minCellZ || gz > maxCellZ || gx < minCellX || gx > maxCellX) return best;
+        int slot = find(pack(gx, gz));
+        if (slot < 0) return best;
+        for (int i = cellStarts[slot]; i < cellEnds[slot]; i++) {
+            double distance = distanceSquared(i, x, y, z);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private double distanceSquared(int i, double x, double y, double z) {
+        double dx = xs[i] - x, dy = ys[i] - y, dz = zs[i] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private int find(long key) {
+        int slot = slot(key);
+        while (true) {
+            long stored = cellKeys[slot];
+            if (stored == key) return slot;
+            if (stored == EMPTY) return -1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private int cell(double coordinate) {
+        return Math.floorDiv(Location.locToBlock(coordinate), cellSize);
+    }
+
+    private static long key(Location loc, int cellSize) {
+        return pack(Math.floorDiv(loc.getBlockX(), cellSize), Math.floorDiv(loc.getBlockZ(), cellSize));
+    }
+
+    private static long pack(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xffffffffL);
+    }
+}
@@ -0,0 +1,397 @@
+package me.rrs.titleInfo;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Buffers database writes and commits them from a background thread in batched transactions.
+ * <p>
+ * Writes are keyed by player, table and item; a newer write replaces a pending one with the same key,
+ * so a player toggling a display option ten times costs a single row write. Once {@code maxPending}
+ * writes are buffered the writer is woken early, and at twice that the caller waits, at most a tick,
+ * for the writer to take a batch off the queue.
+ * <p>
+ * A failed batch is put back in the queue and retried. Failures to reach the database are retried
+ * indefinitely, but a batch whose writes fail again is split in halves to isolate the bad write,
+ * which is logged and dropped once it has failed {@value #MAX_ATTEMPTS} times, so it cannot hold
+ * back every later write.
+ */
+public class WriteBehindQueue {
+
+    /**
+     * A single row-level change, applied inside the writer's transaction.
+     */
+    @FunctionalInterface
+    public interface PendingWrite {
+        void apply(SqlSession session) throws SQLException;
+    }
+
+    public record Key(UUID uuid, String table, String item) {
+    }
+
+    /**
+     * Hooks into every committed batch, e.g. to record which players it touched.
+     */
+    public interface CommitListener {
+        /**
+         * Runs inside the batch's transaction, after its writes.
+         */
+        void beforeCommit(SqlSession session, Set<UUID> players) throws SQLException;
+
+        /**
+         * Runs once the batch is committed.
+         */
+        void afterCommit(Set<UUID> players);
+    }
+
+    // Failed commits of a single write before it is dropped
+    static final int MAX_ATTEMPTS = 3;
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Logger logger;
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final int maxPending;
+
+    private final Map<Key, PendingWrite> pending = new LinkedHashMap<>();
+    // Failed attempts of writes that are still queued, guarded by pending
+    private final Map<Key, Integer> attempts = new HashMap<>();
+    // Writes per player of the batch being committed, it has already left the pending map
+    private final Map<UUID, Integer> inFlight = new HashMap<>();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService writer;
+    private volatile CommitListener listener;
+    // False while the database cannot be reached, waiting on the writer would not help then
+    private volatile boolean available = true;
+
+    private final Metrics.Counter written;
+    private final Metrics.Counter coalesced;
+    private final Metrics.Counter failedBatches;
+    private final Metrics.Counter dropped;
+    private final Metrics.Histogram commitTime;
+    private final Metrics.Histogram batchRows;
+
+    public WriteBehindQueue(Logger logger, ConnectionPool pool, Metrics metrics, long flushIntervalMs, int batchSize, int maxPending) {
+        this.logger = logger;
+        this.pool = pool;
+        this.commitTime = metrics.timer("titleinfo_db_write_batch_seconds", "Time to commit one batch of queued writes");
+        this.batchRows = metrics.histogram("titleinfo_db_write_batch_rows", "Queued writes committed per batch", Metrics.COUNTS);
+        metrics.gauge("titleinfo_db_write_queue_pending", "Writes waiting to be committed", this::getPendingCount);
+        this.written = metrics.counter("titleinfo_db_writes_committed", "Queued writes committed");
+        this.coalesced = metrics.counter("titleinfo_db_writes_coalesced", "Queued writes replaced by a newer write before being committed");
+        this.failedBatches = metrics.counter("titleinfo_db_write_batches_failed", "Write batches that failed and were retried");
+        this.dropped = metrics.counter("titleinfo_db_writes_dropped", "Queued writes dropped after failing repeatedly");
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPending = Math.max(1, maxPending);
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "TitleInfo-DB-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void setCommitListener(CommitListener listener) {
+        this.listener = listener;
+    }
+
+    public void enqueue(Key key, PendingWrite write) {
+        int size;
+        synchronized (pending) {
+            if (pending.remove(key) != null) coalesced.inc();
+            // A newer write gets a fresh start
+            attempts.remove(key);
+            pending.put(key, write);
+            size = pending.size();
+        }
+
+        if (size >= maxPending && !writer.isShutdown()) writer.execute(this::flushQuietly);
+        // Writer cannot keep up, push back on the caller
+        if (size >= maxPending * 2 && available) awaitCapacity();
+    }
+
+    private void awaitCapacity() {
+        long deadline = System.nanoTime() + MAX_WAIT_NANOS;
+        synchronized (pending) {
+            try {
+                while (pending.size() >= maxPending * 2 && !writer.isShutdown()) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) return;
+                    TimeUnit.NANOSECONDS.timedWait(pending, left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Commits every pending write, in batches of {@code batchSize} per transaction.
+     *
+     * @return false if a batch failed and was put back in the queue
+     */
+    public boolean flush() {
+        return flush(key -> true);
+    }
+
+    /**
+     * Commits the player's pending writes, after any batch already being committed.
+     *
+     * @return false if one of them failed and was put back in the queue
+     */
+    public boolean flush(UUID uuid) {
+        return flush(key -> uuid.equals(key.uuid()));
+    }
+
+    private boolean flush(Predicate<Key> filter) {
+        synchronized (flushLock) {
+            while (true) {
+                Map<Key, PendingWrite> batch = drain(filter);
+                if (batch.isEmpty()) return true;
+                try {
+                    if (!commit(batch)) return false;
+                } finally {
+                    clearInFlight();
+                }
+            }
+        }
+    }
+
+    private Map<Key, PendingWrite> drain(Predicate<Key> filter) {
+        Map<Key, PendingWrite> batch = new LinkedHashMap<>();
+        synchronized (pending) {
+            Iterator<Map.Entry<Key, PendingWrite>> it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < batchSize) {
+                Map.Entry<Key, PendingWrite> entry = it.next();
+                if (!filter.test(entry.getKey())) continue;
+                batch.put(entry.getKey(), entry.getValue());
+                if (entry.getKey().uuid() != null) inFlight.merge(entry.getKey().uuid(), 1, Integer::sum);
+                it.remove();
+            }
+            if (!batch.isEmpty()) pending.notifyAll();
+        }
+        return batch;
+    }
+
+    /**
+     * Commits the batch, putting writes that failed back in the queue.
+     *
+     * @return false if any write was put back
+     */
+    private boolean commit(Map<Key, PendingWrite> batch) {
+        Map<Key, PendingWrite> failed = new LinkedHashMap<>();
+        commit(batch, failed);
+        if (failed.isEmpty()) return true;
+
+        requeue(failed);
+        return false;
+    }
+
+    private void commit(Map<Key, PendingWrite> batch, Map<Key, PendingWrite> failed) {
+        BatchFailure failure = tryCommit(batch);
+        if (failure == null) {
+            available = true;
+            synchronized (pending) {
+                attempts.keySet().removeAll(batch.keySet());
+            }
+            return;
+        }
+
+        failedBatches.inc();
+        SQLException e = failure.error();
+        if (!failure.inWrites() || isUnavailable(e)) {
+            // Not the writes' fault, try them again as they are
+            available = false;
+            logger.severe("Failed to write " + batch.size() + " pending changes, retrying later: " + e.getMessage());
+            failed.putAll(batch);
+            return;
+        }
+
+        int maxAttempts = 0;
+        synchronized (pending) {
+            for (Key key : batch.keySet()) maxAttempts = Math.max(maxAttempts, attempts.merge(key, 1, Integer::sum));
+        }
+
+        if (batch.size() > 1 && maxAttempts > 1) {
+            // Failed before, split it so the writes that are fine go through and the bad one is isolated
+            Map<Key, PendingWrite> first = new LinkedHashMap<>();
+            Map<Key, PendingWrite> second = new LinkedHashMap<>();
+            for (Map.Entry<Key, PendingWrite> entry : batch.entrySet()) {
+                (first.size() < batch.size() / 2 ? first : second).put(entry.getKey(), entry.getValue());
+            }
+            commit(first, failed);
+            commit(second, failed);
+        } else if (batch.size() == 1 && maxAttempts >= MAX_ATTEMPTS) {
+            Key key = batch.keySet().iterator().next();
+            synchronized (pending) {
+                attempts.remove(key);
+            }
+            dropped.inc();
+            logger.severe("Dropping write to " + key.table() + " for " + key.uuid() + (key.item().isEmpty() ? "" : " (" + key.item() + ")") +
+                    " after " + maxAttempts + " failed attempts: " + e.getMessage());
+        } else {
+            logger.severe("Failed to write " + batch.size() + " pending changes, retrying later: " + e.getMessage());
+            failed.putAll(batch);
+        }
+    }
+
+    /**
+     * @param inWrites whether a write itself failed, rather than the connection, the commit listener or the commit
+     */
+    private record BatchFailure(SQLException error, boolean inWrites) {
+    }
+
+    private static boolean isUnavailable(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException || (state != null && state.startsWith("08"));
+    }
+
+    /**
+     * Applies the batch in one transaction.
+     *
+     * @return why it failed, or {@code null} once it is committed
+     */
+    private BatchFailure tryCommit(Map<Key, PendingWrite> batch) {
+        CommitListener listener = this.listener;
+        Set<UUID> players = new HashSet<>();
+        for (Key key : batch.keySet()) {
+            if (key.uuid() != null) players.add(key.uuid());
+        }
+
+        DatabaseEvent event = DatabaseEvent.start("write_batch", "write");
+        long start = System.nanoTime();
+        boolean inWrites = false;
+        try (SqlSession session = pool.writer()) {
+            Connection conn = session.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                inWrites = true;
+                for (PendingWrite write : batch.values()) {
+                    write.apply(session);
+                }
+                inWrites = false;
+                if (listener != null) listener.beforeCommit(session, players);
+                conn.commit();
+                written.add(batch.size());
+                commitTime.record(System.nanoTime() - start);
+                batchRows.record(batch.size());
+                event.finish(batch.size(), true);
+                // Committed writes are no longer pending when the listener runs
+                release(batch);
+                if (listener != null) listener.afterCommit(players);
+                return null;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            event.finish(batch.size(), false);
+            return new BatchFailure(e, inWrites);
+        }
+    }
+
+    private void release(Map<Key, PendingWrite> batch) {
+        synchronized (pending) {
+            for (Key key : batch.keySet()) {
+                if (key.uuid() != null) inFlight.computeIfPresent(key.uuid(), (uuid, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+
+    private void clearInFlight() {
+        synchronized (pending) {
+            inFlight.clear();
+        }
+    }
+
+    private void requeue(Map<Key, PendingWrite> batch) {
+        synchronized (pending) {
+            // Writes queued while the batch was in flight are newer and win
+            List<Map.Entry<Key, PendingWrite>> newer = new ArrayList<>(pending.entrySet());
+            pending.clear();
+            pending.putAll(batch);
+            for (Map.Entry<Key, PendingWrite> entry : newer) {
+                if (pending.remove(entry.getKey()) != null) attempts.remove(entry.getKey());
+                pending.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.severe("Unexpected error while flushing pending writes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the background writer and flushes everything that is still pending.
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            if (flush()) return;
+        }
+        logger.severe("Gave up on " + getPendingCount() + " pending changes after repeated failures!");
+    }
+
+    /**
+     * Whether any write for the player is still waiting to be committed.
+     */
+    public boolean hasPending(UUID uuid) {
+        synchronized (pending) {
+            if (inFlight.containsKey(uuid)) return true;
+            for (Key key : pending.keySet()) {
+                if (uuid.equals(key.uuid())) return true;
+            }
+        }
+        return false;
+    }
+
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -1,11 +1,22 @@
 package me.rrs.titleInfo.commands;
 
+import me.rrs.titleInfo.DisplayOption;
+import me.rrs.titleInfo.PlayerSession;
+import me.rrs.titleInfo.PlayerStorage;
+import me.rrs.titleInfo.PluginSettings;
+import me.rrs.titleInfo.TabCompletions;
 import me.rrs.titleInfo.TitleInfo;
 import me.rrs.titleInfo.Waypoint;
+import me.rrs.titleInfo.WaypointBook;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
 import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -18,9 +29,22 @@ import java.util.*;
 public class TitleInfoCommand implements CommandExecutor, TabCompleter {
 
     private final TitleInfo plugin;
-    private static final List<String> MAIN_SUBCOMMANDS = List.of("display", "share", "waypoint", "admin");
+    private static final List<String> MAIN_SUBCOMMANDS = List.of("display", "share", "waypoint", "public", "admin");
     private static final List<String> WAYPOINT_SUBCOMMANDS = List.of("set", "remove", "list", "view", "tp");
-    private static final List<String> ADMIN_SUBCOMMANDS = List.of("waypoint", "display");
+    private static final List<String> ADMIN_SUBCOMMANDS = List.of("waypoint", "display", "public", "stats", "reload");
+    private static final List<String> ADMIN_PUBLIC_SUBCOMMANDS = List.of("set", "remove");
+    private static final List<String> LIST_SORTS = List.of("sort:name", "sort:distance");
+    // Longer completion lists are not useful to players and only cost bandwidth
+    private static final int MAX_COMPLETIONS = 50;
+
+    /**
+     * A parsed {@code [page] [sort:name|distance]} argument pair of the waypoint list commands.
+     */
+    private record ListQuery(int page, boolean byDistance) {
+        String sortArg() {
+            return byDistance ? " sort:distance" : "";
+        }
+    }
 
     public TitleInfoCommand(TitleInfo plugin) { this.plugin = plugin; }
 
@@ -37,6 +61,7 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
             case "display" -> handleDisplay(player, args);
             case "share" -> handleShare(player, args);
             case "waypoint" -> handleWaypoint(player, args);
+            case "public" -> handlePublic(player, args);
             case "admin" -> handleAdmin(player, args);
             default -> sendMainUsage(player);
         }
@@ -50,21 +75,23 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
         if (!checkPerm(player, "titleinfo.display", "/titleinfo display")) return;
 
         if (args.length < 2) {
-            player.sendMessage("§6⚡ §lDisplay Usage §6⚡\n§e➜ /titleinfo display <type> [on|off]\n§aTypes: §fcoordinates, direction, time, biome, waypoint");
+            player.sendMessage("§6⚡ §lDisplay Usage §6⚡\n§e➜ /titleinfo display <type> [on|off]\n§aTypes: §fcoordinates, direction, time, biome, waypoint, nearest");
             return;
         }
 
         String type = args[1].toLowerCase();
-        if (!plugin.getConfiguration().getBoolean("display_options." + type, false)) {
+        if (!isEnabled(type)) {
             player.sendMessage("§c✖ §e'" + type + "' §7is disabled by server admins!");
             return;
         }
 
-        Set<String> prefs = plugin.getPlayerDisplayPrefs().computeIfAbsent(player.getUniqueId(), k -> new HashSet<>());
-        boolean enable = args.length > 2 ? args[2].equalsIgnoreCase("on") : !prefs.contains(type);
+        PlayerSession session = session(player);
+        if (session == null) return;
+        boolean enable = args.length > 2 ? args[2].equalsIgnoreCase("on") : !session.getDisplayPrefs().contains(type);
+        Set<String> prefs = setDisplayOption(session, type, enable);
 
-        if (enable) { prefs.add(type); player.sendMessage("§a✔ §e" + type + " §7display §lENABLED§7!"); }
-        else { prefs.remove(type); player.sendMessage("§c✖ §e" + type + " §7display §lDISABLED§7!"); }
+        if (enable) player.sendMessage("§a✔ §e" + type + " §7display §lENABLED§7!");
+        else player.sendMessage("§c✖ §e" + type + " §7display §lDISABLED§7!");
 
         plugin.getDbManager().savePlayerDisplayPrefs(player.getUniqueId(), prefs);
     }
@@ -75,20 +102,29 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
     private void handleShare(Player player, String[] args) {
         if (!checkPerm(player, "titleinfo.share", "/titleinfo share")) return;
 
-        Location loc = player.getLocation();
-        Component message = Component.text("§6[").append(Component.text(player.getName(), NamedTextColor.YELLOW))
-                .append(Component.text("§6] §7is at §eX: " + loc.getBlockX() +
-                        "§7, §eY: " + loc.getBlockY() + "§7, §eZ: " + loc.getBlockZ() + " §7in §f" + loc.getWorld().getName()));
-
+        Player target = null;
         if (args.length == 1) {
             if (!player.hasPermission("titleinfo.share.global")) { player.sendMessage("§c✖ You cannot share coordinates globally."); return; }
-            Bukkit.getServer().sendMessage(message);
         } else {
             if (!player.hasPermission("titleinfo.share.private")) { player.sendMessage("§c✖ You cannot share coordinates privately."); return; }
-            Player target = Bukkit.getPlayer(args[1]);
+            target = Bukkit.getPlayer(args[1]);
             if (!isOnline(player, target, args[1])) return;
-            target.sendMessage(message); player.sendMessage("§a✔ Coordinates sent to §e" + target.getName() + "§7!");
         }
+
+        Location loc = player.getLocation();
+        if (!player.hasPermission("titleinfo.share.bypass")) {
+            switch (plugin.getShareLimiter().tryShare(player.getUniqueId(), target != null ? target.getUniqueId() : null, loc)) {
+                case COALESCED -> { player.sendMessage("§7You just shared this location!"); return; }
+                case PLAYER_LIMITED -> { player.sendMessage("§c✖ You are sharing coordinates too often, slow down!"); return; }
+                case GLOBAL_LIMITED -> { player.sendMessage("§c✖ Too many coordinates are being shared right now, try again shortly!"); return; }
+                case ALLOWED -> { }
+            }
+        }
+
+        Component message = plugin.getSettings().share().template()
+                .render(player.getName(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ(), loc.getWorld().getName());
+        if (target == null) Bukkit.getServer().sendMessage(message);
+        else { target.sendMessage(message); player.sendMessage("§a✔ Coordinates sent to §e" + target.getName() + "§7!"); }
     }
 
     // ========================
@@ -101,7 +137,7 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
         switch (args[1].toLowerCase()) {
             case "set" -> handleWaypointSet(player, args);
             case "remove" -> handleWaypointRemove(player, args);
-            case "list" -> handleWaypointList(player);
+            case "list" -> handleWaypointList(player, args);
             case "view" -> handleWaypointView(player, args);
             default -> sendWaypointUsage(player);
         }
@@ -112,8 +148,9 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
         if (args.length < 3) { player.sendMessage("§6⚡ §lSet Waypoint Usage §6⚡\n§e➜ /titleinfo waypoint set <name>"); return; }
 
         String name = args[2];
-        List<Waypoint> list = plugin.getPlayerWaypoints().computeIfAbsent(player.getUniqueId(), k -> new ArrayList<>());
-        list.removeIf(wp -> wp.getName().equalsIgnoreCase(name));
+        PlayerSession session = session(player);
+        if (session == null) return;
+        WaypointBook book = session.getWaypoints();
 
         Location loc;
         if (args.length == 3) loc = player.getLocation();
@@ -122,8 +159,10 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
             catch (NumberFormatException e) { player.sendMessage("§c✖ Invalid Coordinates!"); return; }
         } else { player.sendMessage("§6⚡ §lSet Waypoint Usage §6⚡\n§e➜ /titleinfo waypoint set <name>"); return; }
 
-        list.add(new Waypoint(name, loc));
-        plugin.getDbManager().savePlayerWaypoints(player.getUniqueId(), list);
+        Waypoint waypoint = new Waypoint(name, loc);
+        book.put(waypoint);
+        plugin.getDbManager().saveWaypoint(player.getUniqueId(), waypoint);
+        plugin.getTitle().invalidate(player.getUniqueId());
         player.sendMessage("§a✔ Waypoint §e'" + name + "' §7set at §eX: " + loc.getBlockX() +
                 "§7, §eY: " + loc.getBlockY() + "§7, §eZ: " + loc.getBlockZ() + "§7!");
     }
@@ -133,49 +172,171 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
         if (args.length != 3) { player.sendMessage("§6⚡ §lRemove Waypoint Usage §6⚡\n§e➜ /titleinfo waypoint remove <name>"); return; }
 
         String name = args[2];
-        List<Waypoint> list = plugin.getPlayerWaypoints().get(player.getUniqueId());
-        if (list != null && list.removeIf(wp -> wp.getName().equalsIgnoreCase(name))) {
-            plugin.getDbManager().savePlayerWaypoints(player.getUniqueId(), list);
-            String active = plugin.getActiveWaypointNames().get(player.getUniqueId());
-            if (name.equalsIgnoreCase(active)) { plugin.getActiveWaypointNames().remove(player.getUniqueId()); plugin.getDbManager().saveActiveWaypointName(player.getUniqueId(), null); player.sendMessage("§7Active waypoint cleared!"); }
+        PlayerSession session = session(player);
+        if (session == null) return;
+        WaypointBook book = session.getWaypoints();
+        Waypoint active = book.getActive();
+        Waypoint removed = book.remove(name);
+        if (removed != null) {
+            plugin.getDbManager().deleteWaypoint(player.getUniqueId(), removed.getName());
+            plugin.getTitle().invalidate(player.getUniqueId());
+            if (removed == active) { plugin.getDbManager().saveActiveWaypointName(player.getUniqueId(), null); player.sendMessage("§7Active waypoint cleared!"); }
             player.sendMessage("§a✔ Waypoint §e'" + name + "' §7removed!");
         } else player.sendMessage("§c✖ Waypoint §e'" + name + "' §7not found!");
     }
 
-    private void handleWaypointList(Player player) {
+    private void handleWaypointList(Player player, String[] args) {
         if (!checkPerm(player, "titleinfo.waypoint.list", "/titleinfo waypoint list")) return;
-        List<Waypoint> list = plugin.getPlayerWaypoints().get(player.getUniqueId());
-        if (list == null || list.isEmpty()) { player.sendMessage("§c✖ You have no waypoints!"); return; }
+        ListQuery query = parseListQuery(player, args, 2);
+        if (query == null) return;
+        sendWaypointPage(player, player.getUniqueId(), "Your Waypoints", "§c✖ You have no waypoints!", "/titleinfo waypoint list", query);
+    }
+
+    private ListQuery parseListQuery(Player player, String[] args, int from) {
+        int page = 1;
+        boolean byDistance = false;
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i].toLowerCase();
+            if (arg.equals("sort:name")) byDistance = false;
+            else if (arg.equals("sort:distance")) byDistance = true;
+            else {
+                try { page = Integer.parseInt(arg); }
+                catch (NumberFormatException e) { page = 0; }
+                if (page < 1) { player.sendMessage("§c✖ §e'" + args[i] + "' §7is not a valid page or §esort:name§7/§esort:distance§7!"); return null; }
+            }
+        }
+        return new ListQuery(page, byDistance);
+    }
+
+    /**
+     * Sends one page of a player's waypoints as a single message. Cached waypoints are paged in memory,
+     * otherwise only the requested page is read from the database.
+     */
+    private void sendWaypointPage(Player viewer, UUID owner, String title, String emptyMessage, String command, ListQuery query) {
+        int pageSize = plugin.getSettings().waypoints().pageSize();
+        int offset = (int) Math.min(Integer.MAX_VALUE, (long) (query.page() - 1) * pageSize);
+        Location origin = query.byDistance() ? viewer.getLocation() : null;
+
+        if (plugin.getDataLoader().isCached(owner)) {
+            PlayerSession session = plugin.getSession(owner);
+            List<Waypoint> sorted = session != null ? session.getWaypoints().getSorted(origin) : List.of();
+            Waypoint active = session != null ? session.getWaypoints().getActive() : null;
+            int from = Math.min(offset, sorted.size());
+            sendWaypointPage(viewer, new PlayerStorage.WaypointPage(sorted.subList(from, Math.min(sorted.size(), from + pageSize)), sorted.size()),
+                    active != null ? active.getName() : null, title, emptyMessage, command, query, pageSize, origin);
+            return;
+        }
+
+        plugin.getTaskScheduler().runAsync(() -> {
+            PlayerStorage.WaypointPage page = plugin.getDbManager().getWaypointPage(owner, origin, offset, pageSize);
+            String active = page.total() > 0 ? plugin.getDbManager().getActiveWaypointName(owner) : null;
+            sendWaypointPage(viewer, page, active, title, emptyMessage, command, query, pageSize, origin);
+        });
+    }
+
+    private void sendWaypointPage(Player viewer, PlayerStorage.WaypointPage page, String activeName, String title, String emptyMessage,
+                                  String command, ListQuery query, int pageSize, Location origin) {
+        if (page.total() == 0) { viewer.sendMessage(emptyMessage); return; }
+        int pages = (page.total() + pageSize - 1) / pageSize;
+        if (query.page() > pages) { viewer.sendMessage("§c✖ Page §e" + query.page() + " §7does not exist, there " + (pages == 1 ? "is §e1 §7page" : "are §e" + pages + " §7pages") + "!"); return; }
+
+        TextComponent.Builder message = Component.text().append(header(title))
+                .append(Component.text(" (" + page.total() + ")", NamedTextColor.GRAY));
+        for (Waypoint wp : page.waypoints()) {
+            Location l = wp.getLocation();
+            double distanceSq = origin != null ? WaypointBook.distanceSquared(l, origin) : Double.POSITIVE_INFINITY;
+            message.append(Component.newline()).append(Component.text("- " + wp.getName(), NamedTextColor.YELLOW));
+            if (wp.getName().equalsIgnoreCase(activeName)) message.append(Component.text(" (active)", NamedTextColor.GREEN));
+            message.append(Component.text(": ", NamedTextColor.GRAY)).append(coordinates(l));
+            if (Double.isFinite(distanceSq)) message.append(Component.text(" (" + Math.round(Math.sqrt(distanceSq)) + "m)", NamedTextColor.GRAY));
+        }
 
-        String active = plugin.getActiveWaypointNames().get(player.getUniqueId());
-        player.sendMessage("§6✨ §lYour Waypoints §6✨");
-        list.forEach(wp -> { Location l = wp.getLocation(); player.sendMessage("§e- " + wp.getName() + (wp.getName().equalsIgnoreCase(active) ? " §a(active)" : "") + "§7: §eX: " + l.getBlockX() + "§7, §eY: " + l.getBlockY() + "§7, §eZ: " + l.getBlockZ()); });
+        message.append(Component.newline())
+                .append(Component.text("Page ", NamedTextColor.GRAY))
+                .append(Component.text(query.page(), NamedTextColor.YELLOW))
+                .append(Component.text("/", NamedTextColor.GRAY))
+                .append(Component.text(pages, NamedTextColor.YELLOW));
+        if (query.page() < pages) {
+            String next = command + " " + (query.page() + 1) + query.sortArg();
+            message.append(Component.text(" [Next »]", NamedTextColor.GREEN)
+                    .clickEvent(ClickEvent.runCommand(next))
+                    .hoverEvent(HoverEvent.showText(Component.text(next, NamedTextColor.GRAY))));
+        }
+        viewer.sendMessage(message.build());
     }
 
     private void handleWaypointView(Player player, String[] args) {
         if (!checkPerm(player, "titleinfo.waypoint.view", "/titleinfo waypoint view")) return;
 
-        List<Waypoint> list = plugin.getPlayerWaypoints().get(player.getUniqueId());
-        if (list == null || list.isEmpty()) { player.sendMessage("§c✖ You have no waypoints!"); return; }
+        PlayerSession session = session(player);
+        if (session == null) return;
+        WaypointBook book = session.getWaypoints();
+        if (book.isEmpty()) { player.sendMessage("§c✖ You have no waypoints!"); return; }
 
-        String active = plugin.getActiveWaypointNames().get(player.getUniqueId());
-        if (args.length == 2) { toggleWaypointView(player, null, active); return; }
+        if (args.length == 2) { toggleWaypointView(player, book, null); return; }
 
-        Waypoint wp = list.stream().filter(w -> w.getName().equalsIgnoreCase(args[2])).findFirst().orElse(null);
+        Waypoint wp = book.get(args[2]);
         if (wp == null) { player.sendMessage("§c✖ Waypoint §e'" + args[2] + "' §7not found!"); return; }
-        toggleWaypointView(player, wp.getName(), active);
+        toggleWaypointView(player, book, wp);
     }
 
-    private void toggleWaypointView(Player player, String name, String active) {
-        if (active != null && (name == null || name.equalsIgnoreCase(active))) {
-            plugin.getActiveWaypointNames().remove(player.getUniqueId());
+    private void toggleWaypointView(Player player, WaypointBook book, Waypoint wp) {
+        Waypoint active = book.getActive();
+        if (active != null && (wp == null || wp == active)) {
+            book.setActive(null);
             plugin.getDbManager().saveActiveWaypointName(player.getUniqueId(), null);
+            plugin.getTitle().invalidate(player.getUniqueId());
             player.sendMessage("§a✔ Waypoint view cleared!");
-        } else if (name != null) {
-            plugin.getActiveWaypointNames().put(player.getUniqueId(), name);
-            plugin.getDbManager().saveActiveWaypointName(player.getUniqueId(), name);
-            player.sendMessage("§a✔ Now viewing waypoint §e'" + name + "'§7!");
+        } else if (wp != null) {
+            book.setActive(wp);
+            plugin.getDbManager().saveActiveWaypointName(player.getUniqueId(), wp.getName());
+            plugin.getTitle().invalidate(player.getUniqueId());
+            player.sendMessage("§a✔ Now viewing waypoint §e'" + wp.getName() + "'§7!");
+        }
+    }
+
+    // ========================
+    // Public Waypoints
+    // ========================
+    private void handlePublic(Player player, String[] args) {
+        if (!checkPerm(player, "titleinfo.public", "/titleinfo public")) return;
+        if (args.length < 2 || !args[1].equalsIgnoreCase("near") || args.length > 3) { sendPublicUsage(player); return; }
+
+        PluginSettings.Waypoints settings = plugin.getSettings().waypoints();
+        int maxRadius = settings.publicMaxRadius();
+        int radius = settings.publicDefaultRadius();
+        if (args.length == 3) {
+            try { radius = Integer.parseInt(args[2]); }
+            catch (NumberFormatException e) { player.sendMessage("§c✖ §e'" + args[2] + "' §7is not a valid radius!"); return; }
+            if (radius <= 0 || radius > maxRadius) { player.sendMessage("§c✖ Radius must be between §e1 §7and §e" + maxRadius + "§7!"); return; }
+        }
+
+        Location loc = player.getLocation();
+        List<Waypoint> found = plugin.getPublicWaypoints().within(loc.getWorld(), loc.getX(), loc.getY(), loc.getZ(), radius);
+        if (found.isEmpty()) { player.sendMessage("§c✖ No public waypoints within §e" + radius + " §7blocks!"); return; }
+
+        int maxResults = settings.publicMaxResults();
+        TextComponent.Builder message = Component.text().append(header("Public Waypoints within " + radius + " blocks"));
+        for (Waypoint wp : found.subList(0, Math.min(found.size(), maxResults))) {
+            Location l = wp.getLocation();
+            message.append(Component.newline())
+                    .append(Component.text("- " + wp.getName(), NamedTextColor.YELLOW))
+                    .append(Component.text(": ", NamedTextColor.GRAY))
+                    .append(Component.text(Math.round(Math.sqrt(WaypointBook.distanceSquared(l, loc))) + "m", NamedTextColor.YELLOW))
+                    .append(Component.text(" at ", NamedTextColor.GRAY))
+                    .append(coordinates(l));
         }
+        if (found.size() > maxResults) {
+            message.append(Component.newline())
+                    .append(Component.text("... and ", NamedTextColor.GRAY))
+                    .append(Component.text(found.size() - maxResults, NamedTextColor.YELLOW))
+                    .append(Component.text(" more", NamedTextColor.GRAY));
+        }
+        player.sendMessage(message.build());
+    }
+
+    private void sendPublicUsage(Player player) {
+        player.sendMessage("§6⚡ §lPublic Waypoint Usage §6⚡\n§e➜ /titleinfo public near [radius]");
     }
 
     // ========================
@@ -183,35 +344,53 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
 // ========================
     private void handleAdmin(Player player, String[] args) {
         if (!checkPerm(player, "titleinfo.admin", "/titleinfo admin")) return;
+        if (args.length >= 2 && args[1].equalsIgnoreCase("stats")) { handleAdminStats(player); return; }
+        if (args.length >= 2 && args[1].equalsIgnoreCase("public")) { handleAdminPublic(player, args); return; }
+        if (args.length >= 2 && args[1].equalsIgnoreCase("reload")) { handleAdminReload(player); return; }
         if (args.length < 3) { sendAdminUsage(player); return; }
 
         String adminType = args[1].toLowerCase();
-        Player target = Bukkit.getPlayer(args[2]);
-        if (!isOnline(player, target, args[2])) return;
+        if (!adminType.equals("waypoint") && !adminType.equals("display")) { sendAdminUsage(player); return; }
 
-        switch (adminType) {
-            case "waypoint" -> handleAdminWaypoint(player, target, args);
-            case "display" -> handleAdminDisplay(player, target, args);
-            default -> sendAdminUsage(player);
+        // Offline players are supported, their data is loaded on demand and released again afterwards
+        OfflinePlayer target = Bukkit.getOfflinePlayerIfCached(args[2]);
+        if (target == null) { player.sendMessage("§c✖ §e'" + args[2] + "' §7has never played on this server!"); return; }
+
+        // Listing reads a single page, there is no need to load everything the player has
+        if (adminType.equals("waypoint") && args.length >= 4 && args[3].equalsIgnoreCase("list")) {
+            ListQuery query = parseListQuery(player, args, 4);
+            if (query != null) sendWaypointPage(player, target.getUniqueId(), "Waypoints for " + target.getName(),
+                    "§c✖ §e" + target.getName() + " §7has no waypoints!", "/titleinfo admin waypoint " + target.getName() + " list", query);
+            return;
         }
+
+        // Loading completes on the global region, the command itself reads the sender's location on their own thread
+        UUID targetUUID = target.getUniqueId();
+        Runnable release = () -> { if (!target.isOnline()) plugin.getDataLoader().releaseIfOffline(targetUUID); };
+        plugin.getDataLoader().ensureLoaded(targetUUID).thenRun(() -> plugin.getTaskScheduler().runAt(player, () -> {
+            if (adminType.equals("waypoint")) handleAdminWaypoint(player, target, args);
+            else handleAdminDisplay(player, target, args);
+            release.run();
+        }, release));
     }
 
     // ========================
 // Admin Waypoint & Display
 // ========================
-    private void handleAdminWaypoint(Player player, Player target, String[] args) {
+    private void handleAdminWaypoint(Player player, OfflinePlayer target, String[] args) {
         if (args.length < 4) { sendAdminWaypointUsage(player); return; }
 
         String sub = args[3].toLowerCase();
         UUID targetUUID = target.getUniqueId();
-        List<Waypoint> list = plugin.getPlayerWaypoints().computeIfAbsent(targetUUID, k -> new ArrayList<>());
+        PlayerSession session = plugin.getSession(targetUUID);
+        if (session == null) { player.sendMessage("§c✖ Data of §e" + target.getName() + " §7is not loaded, try again!"); return; }
+        WaypointBook book = session.getWaypoints();
 
         switch (sub) {
 
             case "set" -> {
                 if (args.length < 5) { sendAdminWaypointUsage(player); return; }
                 String name = args[4];
-                list.removeIf(wp -> wp.getName().equalsIgnoreCase(name));
 
                 Location loc;
                 if (args.length == 5) loc = player.getLocation();
@@ -221,47 +400,42 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
                     } catch (NumberFormatException e) { player.sendMessage("§c✖ Invalid Coordinates!"); return; }
                 } else { sendAdminWaypointUsage(player); return; }
 
-                list.add(new Waypoint(name, loc));
-                plugin.getDbManager().savePlayerWaypoints(targetUUID, list);
+                Waypoint waypoint = new Waypoint(name, loc);
+                book.put(waypoint);
+                plugin.getDbManager().saveWaypoint(targetUUID, waypoint);
+                plugin.getTitle().invalidate(targetUUID);
                 player.sendMessage("§a✔ Set waypoint §e'" + name + "' §7for §e" + target.getName() + "§7 at §eX:" + loc.getBlockX() + " §eY:" + loc.getBlockY() + " §eZ:" + loc.getBlockZ() + "§7!");
-                target.sendMessage("§a✔ Admin set your waypoint §e'" + name + "'§7!");
+                notifyTarget(target, "§a✔ Admin set your waypoint §e'" + name + "'§7!");
             }
             case "remove" -> {
                 if (args.length != 5) { sendAdminWaypointUsage(player); return; }
                 String name = args[4];
-                if (list.removeIf(wp -> wp.getName().equalsIgnoreCase(name))) {
-                    plugin.getDbManager().savePlayerWaypoints(targetUUID, list);
-                    String active = plugin.getActiveWaypointNames().get(targetUUID);
-                    if (name.equalsIgnoreCase(active)) { plugin.getActiveWaypointNames().remove(targetUUID); plugin.getDbManager().saveActiveWaypointName(targetUUID, null); target.sendMessage("§7Active waypoint cleared!"); }
+                Waypoint active = book.getActive();
+                Waypoint removed = book.remove(name);
+                if (removed != null) {
+                    plugin.getDbManager().deleteWaypoint(targetUUID, removed.getName());
+                    plugin.getTitle().invalidate(targetUUID);
+                    if (removed == active) { plugin.getDbManager().saveActiveWaypointName(targetUUID, null); notifyTarget(target, "§7Active waypoint cleared!"); }
                     player.sendMessage("§a✔ Removed waypoint §e'" + name + "' §7for §e" + target.getName() + "§7!");
                 } else player.sendMessage("§c✖ Waypoint §e'" + name + "' §7not found for §e" + target.getName() + "§7!");
             }
-            case "list" -> {
-                if (list.isEmpty()) { player.sendMessage("§c✖ §e" + target.getName() + " §7has no waypoints!"); return; }
-                player.sendMessage("§6✨ §lWaypoints for " + target.getName() + " §6✨");
-                String active = plugin.getActiveWaypointNames().get(targetUUID);
-                list.forEach(wp -> {
-                    Location l = wp.getLocation();
-                    player.sendMessage("§e- " + wp.getName() + (wp.getName().equalsIgnoreCase(active) ? " §a(active)" : "") +
-                            "§7: §eX:" + l.getBlockX() + " §eY:" + l.getBlockY() + " §eZ:" + l.getBlockZ());
-                });
-            }
             case "view" -> {
                 if (args.length != 5) { sendAdminWaypointUsage(player); return; }
                 String name = args[4];
-                Waypoint wp = list.stream().filter(w -> w.getName().equalsIgnoreCase(name)).findFirst().orElse(null);
+                Waypoint wp = book.get(name);
                 if (wp == null) { player.sendMessage("§c✖ Waypoint §e'" + name + "' §7not found for §e" + target.getName() + "§7!"); return; }
-                String active = plugin.getActiveWaypointNames().get(targetUUID);
-                if (name.equalsIgnoreCase(active)) {
-                    plugin.getActiveWaypointNames().remove(targetUUID);
+                if (wp == book.getActive()) {
+                    book.setActive(null);
                     plugin.getDbManager().saveActiveWaypointName(targetUUID, null);
+                    plugin.getTitle().invalidate(targetUUID);
                     player.sendMessage("§a✔ Cleared active waypoint view for §e" + target.getName() + "§7!");
-                    target.sendMessage("§a✔ Admin stopped your view of waypoint §e'" + name + "'§7!");
+                    notifyTarget(target, "§a✔ Admin stopped your view of waypoint §e'" + name + "'§7!");
                 } else {
-                    plugin.getActiveWaypointNames().put(targetUUID, name);
-                    plugin.getDbManager().saveActiveWaypointName(targetUUID, name);
+                    book.setActive(wp);
+                    plugin.getDbManager().saveActiveWaypointName(targetUUID, wp.getName());
+                    plugin.getTitle().invalidate(targetUUID);
                     player.sendMessage("§a✔ Set §e" + target.getName() + " §7to view waypoint §e'" + name + "'§7!");
-                    target.sendMessage("§a✔ Admin set you to view waypoint §e'" + name + "'§7!");
+                    notifyTarget(target, "§a✔ Admin set you to view waypoint §e'" + name + "'§7!");
                 }
             }
             case "tp" -> { // Admin teleport to a player's waypoint
@@ -276,53 +450,98 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
                 }
 
                 String wpName = args[4];
-                Waypoint wp = list.stream()
-                        .filter(w -> w.getName().equalsIgnoreCase(wpName))
-                        .findFirst()
-                        .orElse(null);
+                Waypoint wp = book.get(wpName);
 
                 if (wp == null) {
                     player.sendMessage("§c✖ Waypoint §e'" + wpName + "' §7not found for §e" + target.getName() + "§7!");
                     return;
                 }
 
-                // Teleport
-                player.teleport(wp.getLocation());
-                player.sendMessage("§a✔ Teleported to §e" + target.getName() + "'s §7waypoint §e'" + wpName + "'§7!");
+                player.teleportAsync(wp.getLocation()).thenAccept(success -> {
+                    if (success) player.sendMessage("§a✔ Teleported to §e" + target.getName() + "'s §7waypoint §e'" + wpName + "'§7!");
+                    else player.sendMessage("§c✖ Could not teleport to §e'" + wpName + "'§7!");
+                });
             }
 
             default -> sendAdminWaypointUsage(player);
         }
     }
 
-    private void handleAdminDisplay(Player player, Player target, String[] args) {
+    private void handleAdminDisplay(Player player, OfflinePlayer target, String[] args) {
         if (args.length != 5) { sendAdminDisplayUsage(player); return; }
         String action = args[3].toLowerCase();
         String type = args[4].toLowerCase();
-        if (!plugin.getConfiguration().getBoolean("display_options." + type, false)) {
+        if (!isEnabled(type)) {
             player.sendMessage("§c✖ Display type §e'" + type + "' §7is disabled!"); return;
         }
 
-        Set<String> prefs = plugin.getPlayerDisplayPrefs().computeIfAbsent(target.getUniqueId(), k -> new HashSet<>());
+        PlayerSession session = plugin.getSession(target.getUniqueId());
+        if (session == null) { player.sendMessage("§c✖ Data of §e" + target.getName() + " §7is not loaded, try again!"); return; }
+
         boolean enable = action.equals("enable");
+        Set<String> prefs = setDisplayOption(session, type, enable);
         if (enable) {
-            prefs.add(type);
             player.sendMessage("§a✔ Enabled §e" + type + " §7for §e" + target.getName() + "§7!");
-            target.sendMessage("§a✔ Admin enabled your §e" + type + " §7display!");
+            notifyTarget(target, "§a✔ Admin enabled your §e" + type + " §7display!");
         } else {
-            prefs.remove(type);
             player.sendMessage("§a✔ Disabled §e" + type + " §7for §e" + target.getName() + "§7!");
-            target.sendMessage("§a✔ Admin disabled your §e" + type + " §7display!");
+            notifyTarget(target, "§a✔ Admin disabled your §e" + type + " §7display!");
         }
 
         plugin.getDbManager().savePlayerDisplayPrefs(target.getUniqueId(), prefs);
     }
 
 
+    private void handleAdminPublic(Player player, String[] args) {
+        if (!checkPerm(player, "titleinfo.admin.public", "/titleinfo admin public")) return;
+        if (args.length != 4) { sendAdminPublicUsage(player); return; }
+
+        String name = args[3];
+        switch (args[2].toLowerCase()) {
+            case "set" -> {
+                Waypoint waypoint = new Waypoint(name, player.getLocation());
+                Location loc = waypoint.getLocation();
+                Waypoint previous = plugin.getPublicWaypoints().put(waypoint);
+                plugin.getDbManager().savePublicWaypoint(waypoint);
+                player.sendMessage("§a✔ Public waypoint §e'" + name + "' §7" + (previous != null ? "moved" : "set") + " to §eX: " + loc.getBlockX() +
+                        "§7, §eY: " + loc.getBlockY() + "§7, §eZ: " + loc.getBlockZ() + "§7!");
+            }
+            case "remove" -> {
+                Waypoint removed = plugin.getPublicWaypoints().remove(name);
+                if (removed == null) { player.sendMessage("§c✖ Public waypoint §e'" + name + "' §7not found!"); return; }
+                plugin.getDbManager().deletePublicWaypoint(removed.getName());
+                player.sendMessage("§a✔ Public waypoint §e'" + removed.getName() + "' §7removed!");
+            }
+            default -> sendAdminPublicUsage(player);
+        }
+    }
+
+    private void handleAdminStats(Player player) {
+        if (!checkPerm(player, "titleinfo.admin.stats", "/titleinfo admin stats")) return;
+        player.sendMessage("§6📊 §lTitleInfo Stats");
+        for (String line : plugin.getMetrics().describe()) player.sendMessage("§7  • §f" + line);
+    }
+
+    private void handleAdminReload(Player player) {
+        if (!checkPerm(player, "titleinfo.admin.reload", "/titleinfo admin reload")) return;
+        plugin.reloadSettings().whenComplete((restartRequired, error) -> {
+            if (error != null) {
+                player.sendMessage("§c✖ Config not reloaded, the current settings stay in effect: §e" + error.getMessage());
+                return;
+            }
+            player.sendMessage("§a✔ Config reloaded!");
+            if (!restartRequired.isEmpty()) player.sendMessage("§7Changes to §e" + String.join("§7, §e", restartRequired) + " §7take effect after a restart.");
+        });
+    }
+
     private void sendAdminWaypointUsage(Player player) {
         player.sendMessage("§6⚡ §lAdmin Waypoint Usage §6⚡\n§e➜ /titleinfo admin waypoint <set|remove|list|view|tp> <player> [args]");
     }
 
+    private void sendAdminPublicUsage(Player player) {
+        player.sendMessage("§6⚡ §lAdmin Public Waypoint Usage §6⚡\n§e➜ /titleinfo admin public <set|remove> <name>");
+    }
+
     private void sendAdminDisplayUsage(Player player) {
         player.sendMessage("§6⚡ §lAdmin Display Usage §6⚡\n§e➜ /titleinfo admin display <enable|disable> <player> <type>");
     }
@@ -331,10 +550,59 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
     // ========================
     // Helpers
     // ========================
+    private boolean isEnabled(String type) {
+        DisplayOption option = DisplayOption.fromKey(type);
+        return option != null && plugin.getSettings().isEnabled(option);
+    }
+
+    /**
+     * The player's session, or {@code null} after telling them their data is still loading, e.g. right after joining.
+     */
+    private PlayerSession session(Player player) {
+        PlayerSession session = plugin.getSession(player.getUniqueId());
+        if (session == null) player.sendMessage("§c✖ Your data is still loading, try again in a moment!");
+        return session;
+    }
+
+    /**
+     * Replaces the player's cached prefs with a copy that has the option turned on or off. Cached sets are
+     * never modified in place, the render thread may be reading them.
+     */
+    private Set<String> setDisplayOption(PlayerSession session, String type, boolean enable) {
+        return session.updateDisplayPrefs(prefs -> {
+            if (enable) prefs.add(type);
+            else prefs.remove(type);
+            return prefs;
+        });
+    }
+
+    private static Component header(String title) {
+        return Component.text()
+                .append(Component.text("✨ ", NamedTextColor.GOLD))
+                .append(Component.text(title, NamedTextColor.GOLD, TextDecoration.BOLD))
+                .append(Component.text(" ✨", NamedTextColor.GOLD))
+                .build();
+    }
+
+    private static Component coordinates(Location l) {
+        return Component.text()
+                .append(Component.text("X: " + l.getBlockX(), NamedTextColor.YELLOW))
+                .append(Component.text(", ", NamedTextColor.GRAY))
+                .append(Component.text("Y: " + l.getBlockY(), NamedTextColor.YELLOW))
+                .append(Component.text(", ", NamedTextColor.GRAY))
+                .append(Component.text("Z: " + l.getBlockZ(), NamedTextColor.YELLOW))
+                .build();
+    }
+
     private boolean checkPerm(Player p, String perm, String cmd) {
         if (!p.hasPermission(perm)) { sendNoPermission(p, cmd); return false; } return true;
     }
 
+    private void notifyTarget(OfflinePlayer target, String message) {
+        Player online = target.getPlayer();
+        if (online != null) online.sendMessage(message);
+    }
+
     private boolean isOnline(Player sender, Player target, String name) {
         if (target == null || !target.isOnline()) { sender.sendMessage("§c✖ §e'" + name + "' §7not found or offline!"); return false; }
         return true;
@@ -342,15 +610,16 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
 
     private void sendMainUsage(Player player) {
         player.sendMessage("§6✨ §lTitleInfo Usage §6✨");
-        player.sendMessage("§e➜ /titleinfo <display|share|waypoint" + (player.hasPermission("titleinfo.admin") ? "|admin" : "") + ">");
+        player.sendMessage("§e➜ /titleinfo <display|share|waypoint|public" + (player.hasPermission("titleinfo.admin") ? "|admin" : "") + ">");
         player.sendMessage("§a  • /titleinfo display <type> [on|off]");
         player.sendMessage("§a  • /titleinfo share [player]");
         player.sendMessage("§a  • /titleinfo waypoint <set|remove|list|view>");
-        if (player.hasPermission("titleinfo.admin")) player.sendMessage("§a  • /titleinfo admin <waypoint|display> [args]");
+        player.sendMessage("§a  • /titleinfo public near [radius]");
+        if (player.hasPermission("titleinfo.admin")) player.sendMessage("§a  • /titleinfo admin <waypoint|display|public|stats|reload> [args]");
     }
 
     private void sendWaypointUsage(Player player) {
-        player.sendMessage("§6⚡ §lWaypoint Usage §6⚡\n§e➜ /titleinfo waypoint <set|remove|list|view>");
+        player.sendMessage("§6⚡ §lWaypoint Usage §6⚡\n§e➜ /titleinfo waypoint <set|remove|list|view>\n§e➜ /titleinfo waypoint list [page] [sort:name|distance]");
     }
 
     private void sendNoPermission(Player player, String cmd) {
@@ -358,7 +627,7 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
     }
 
     private void sendAdminUsage(Player player) {
-        player.sendMessage("§6⚡ §lAdmin Usage §6⚡\n§e➜ /titleinfo admin <waypoint|display>");
+        player.sendMessage("§6⚡ §lAdmin Usage §6⚡\n§e➜ /titleinfo admin <waypoint|display|public|stats|reload>");
     }
 
     // ========================
@@ -369,7 +638,7 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
         if (!(sender instanceof Player player)) return Collections.emptyList();
         if (!command.getName().equalsIgnoreCase("titleinfo")) return Collections.emptyList();
 
-        List<String> completions = new ArrayList<>();
+        TabCompletions index = plugin.getTabCompletions();
 
         switch (args.length) {
             case 1 -> { // Main subcommands
@@ -377,25 +646,24 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
                 if (player.hasPermission("titleinfo.display")) subs.add("display");
                 if (player.hasPermission("titleinfo.share")) subs.add("share");
                 if (player.hasPermission("titleinfo.waypoint")) subs.add("waypoint");
+                if (player.hasPermission("titleinfo.public")) subs.add("public");
                 if (player.hasPermission("titleinfo.admin")) subs.add("admin");
                 return StringUtil.copyPartialMatches(args[0], subs, new ArrayList<>());
             }
             case 2 -> { // Subcommand arguments
                 switch (args[0].toLowerCase()) {
                     case "display" -> {
-                        plugin.getConfig().getConfigurationSection("display_options").getKeys(false)
-                                .stream().filter(type -> plugin.getConfiguration().getBoolean("display_options." + type))
-                                .forEach(completions::add);
-                        return StringUtil.copyPartialMatches(args[1], completions, new ArrayList<>());
+                        return index.displayTypes(args[1], MAX_COMPLETIONS);
                     }
                     case "share" -> {
-                        Bukkit.getOnlinePlayers().stream().map(Player::getName).forEach(completions::add);
-                        completions.add("global");
-                        return StringUtil.copyPartialMatches(args[1], completions, new ArrayList<>());
+                        return shareTargets(index, args[1]);
                     }
                     case "waypoint" -> {
                         return StringUtil.copyPartialMatches(args[1], WAYPOINT_SUBCOMMANDS, new ArrayList<>());
                     }
+                    case "public" -> {
+                        return StringUtil.copyPartialMatches(args[1], List.of("near"), new ArrayList<>());
+                    }
                     case "admin" -> {
                         return StringUtil.copyPartialMatches(args[1], ADMIN_SUBCOMMANDS, new ArrayList<>());
                     }
@@ -405,58 +673,58 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
                 switch (args[0].toLowerCase()) {
                     case "waypoint" -> {
                         String sub = args[1].toLowerCase();
-                        if (sub.equals("remove") || sub.equals("view")) {
-                            plugin.getPlayerWaypoints().getOrDefault(player.getUniqueId(), new ArrayList<>())
-                                    .stream().map(Waypoint::getName).forEach(completions::add);
-                            return StringUtil.copyPartialMatches(args[2], completions, new ArrayList<>());
-                        }
+                        if (sub.equals("remove") || sub.equals("view")) return waypointNames(player.getUniqueId(), args[2]);
+                        if (sub.equals("list")) return StringUtil.copyPartialMatches(args[2], LIST_SORTS, new ArrayList<>());
                         return Collections.emptyList();
                     }
                     case "share" -> {
-                        Bukkit.getOnlinePlayers().stream().map(Player::getName).forEach(completions::add);
-                        completions.add("global");
-                        return StringUtil.copyPartialMatches(args[2], completions, new ArrayList<>());
+                        return shareTargets(index, args[2]);
                     }
                     case "admin" -> {
                         String adminSub = args[1].toLowerCase();
+                        if (adminSub.equals("public")) {
+                            return StringUtil.copyPartialMatches(args[2], ADMIN_PUBLIC_SUBCOMMANDS, new ArrayList<>());
+                        }
                         if (adminSub.equals("waypoint") || adminSub.equals("display")) {
                             // Suggest target player names
-                            Bukkit.getOnlinePlayers().stream().map(Player::getName).forEach(completions::add);
-                            return StringUtil.copyPartialMatches(args[2], completions, new ArrayList<>());
+                            return index.players(args[2], MAX_COMPLETIONS);
                         }
                     }
                 }
             }
-            case 4 -> { // Admin: waypoint/display subcommands
+            case 4 -> { // Admin: waypoint/display subcommands, or a public waypoint name
+                if (args[0].equalsIgnoreCase("waypoint") && args[1].equalsIgnoreCase("list")) {
+                    return StringUtil.copyPartialMatches(args[3], LIST_SORTS, new ArrayList<>());
+                }
                 if (args[0].equalsIgnoreCase("admin")) {
                     String adminSub = args[1].toLowerCase();
+                    if (adminSub.equals("public") && args[2].equalsIgnoreCase("remove")) {
+                        return plugin.getPublicWaypoints().completeNames(args[3], MAX_COMPLETIONS);
+                    }
                     Player target = Bukkit.getPlayer(args[2]);
                     if (adminSub.equals("waypoint") && target != null) {
                         return StringUtil.copyPartialMatches(args[3], WAYPOINT_SUBCOMMANDS, new ArrayList<>());
                     } else if (adminSub.equals("display") && target != null) {
-                        completions.add("enable");
-                        completions.add("disable");
-                        return StringUtil.copyPartialMatches(args[3], completions, new ArrayList<>());
+                        return StringUtil.copyPartialMatches(args[3], List.of("enable", "disable"), new ArrayList<>());
                     }
                 }
             }
             case 5 -> { // Admin: waypoint name or display type
                 if (args[0].equalsIgnoreCase("admin")) {
                     String adminSub = args[1].toLowerCase();
+                    if (adminSub.equals("waypoint") && args[3].equalsIgnoreCase("list")) {
+                        return StringUtil.copyPartialMatches(args[4], LIST_SORTS, new ArrayList<>());
+                    }
+
                     Player target = Bukkit.getPlayer(args[2]);
                     if (target == null) return Collections.emptyList();
 
                     if (adminSub.equals("waypoint") && (args[3].equalsIgnoreCase("remove")
                             || args[3].equalsIgnoreCase("view")
-                            || args[3].equalsIgnoreCase("tp"))) { // <-- add tp here
-                        plugin.getPlayerWaypoints().getOrDefault(target.getUniqueId(), new ArrayList<>())
-                                .stream().map(Waypoint::getName).forEach(completions::add);
-                        return StringUtil.copyPartialMatches(args[4], completions, new ArrayList<>());
+                            || args[3].equalsIgnoreCase("tp"))) {
+                        return waypointNames(target.getUniqueId(), args[4]);
                     } else if (adminSub.equals("display") && (args[3].equalsIgnoreCase("enable") || args[3].equalsIgnoreCase("disable"))) {
-                        plugin.getConfig().getConfigurationSection("display_options").getKeys(false)
-                                .stream().filter(type -> plugin.getConfiguration().getBoolean("display_options." + type))
-                                .forEach(completions::add);
-                        return StringUtil.copyPartialMatches(args[4], completions, new ArrayList<>());
+                        return index.displayTypes(args[4], MAX_COMPLETIONS);
                     }
                 }
             }
@@ -469,7 +737,18 @@ public class TitleInfoCommand implements CommandExecutor, TabCompleter {
             }
         }
 
-        return completions;
+        return Collections.emptyList();
+    }
+
+    private List<String> shareTargets(TabCompletions index, String prefix) {
+        List<String> targets = index.players(prefix, MAX_COMPLETIONS);
+        if (targets.size() < MAX_COMPLETIONS && "global".startsWith(prefix.toLowerCase())) targets.add("global");
+        return targets;
+    }
+
+    private List<String> waypointNames(UUID uuid, String prefix) {
+        PlayerSession session = plugin.getSession(uuid);
+        return session != null ? session.getWaypoints().completeNames(prefix, MAX_COMPLETIONS) : Collections.emptyList();
     }
 
 }
@@ -0,0 +1,187 @@
+package me.rrs.titleInfo;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import dev.dejvokep.boostedyaml.YamlDocument;
+import io.papermc.paper.connection.PlayerLoginConnection;
+import io.papermc.paper.event.connection.PlayerConnectionValidateLoginEvent;
+import org.bukkit.Location;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two servers sharing one SQLite database with sync enabled. Tasks run inline, and writes and polls
+ * only happen when the test asks for them.
+ */
+class CacheCoherenceTest {
+
+    @TempDir
+    Path dataFolder;
+
+    private final List<Server> servers = new ArrayList<>();
+    private final UUID player = UUID.randomUUID();
+
+    @AfterEach
+    void close() {
+        for (Server server : servers) server.db.close();
+    }
+
+    private Server server() throws Exception {
+        Server server = new Server(dataFolder.toFile());
+        servers.add(server);
+        return server;
+    }
+
+    private static Waypoint waypoint(String name, double x) {
+        return new Waypoint(name, new Location(TestPlugins.world(), x, 64, 0));
+    }
+
+    private static final class Server {
+
+        final TitleInfo plugin;
+        final DatabaseManager db;
+        final PlayerDataLoader loader;
+        final CacheCoherence coherence;
+        Runnable poll;
+
+        Server(File dataFolder) throws Exception {
+            YamlDocument config = TestPlugins.config();
+            config.set("storage.sync.enabled", true);
+            config.set("storage.write_behind.flush_interval_ms", 3_600_000);
+            plugin = TestPlugins.plugin(config, dataFolder);
+
+            TaskScheduler scheduler = mock(TaskScheduler.class);
+            doAnswer(invocation -> {
+                invocation.<Runnable>getArgument(0).run();
+                return null;
+            }).when(scheduler).runAsync(any());
+            doAnswer(invocation -> {
+                invocation.<Runnable>getArgument(0).run();
+                return null;
+            }).when(scheduler).runGlobal(any());
+            doAnswer(invocation -> {
+                poll = invocation.getArgument(0);
+                return null;
+            }).when(scheduler).runAsyncTimer(any(), anyLong(), anyLong());
+
+            db = new DatabaseManager(plugin);
+            loader = new PlayerDataLoader(plugin);
+            coherence = new CacheCoherence(plugin);
+            when(plugin.getTaskScheduler()).thenReturn(scheduler);
+            when(plugin.getDbManager()).thenReturn(db);
+            when(plugin.getDataLoader()).thenReturn(loader);
+            when(plugin.getCoherence()).thenReturn(coherence);
+            coherence.start();
+        }
+
+        WaypointBook waypoints(UUID uuid) {
+            PlayerSession session = plugin.getSession(uuid);
+            assertNotNull(session);
+            return session.getWaypoints();
+        }
+
+        void save(UUID uuid, Waypoint waypoint) {
+            waypoints(uuid).put(waypoint);
+            db.saveWaypoint(uuid, waypoint);
+        }
+    }
+
+    private void joinBoth(Server a, Server b) {
+        a.loader.ensureLoaded(player).join();
+        b.loader.ensureLoaded(player).join();
+        // Commits the default display preferences queued for a new player
+        assertTrue(a.db.getWriteQueue().flush());
+        assertTrue(b.db.getWriteQueue().flush());
+        a.poll.run();
+        b.poll.run();
+    }
+
+    @Test
+    void changeOnOtherServerIsReloaded() throws Exception {
+        Server a = server(), b = server();
+        joinBoth(a, b);
+
+        b.save(player, waypoint("mine", 1));
+        assertTrue(b.db.getWriteQueue().flush());
+        a.poll.run();
+
+        assertEquals(1, a.waypoints(player).get("mine").getLocation().getX());
+        assertEquals(b.coherence.getKnownVersion(player), a.coherence.getKnownVersion(player));
+    }
+
+    @Test
+    void reloadWaitsForQueuedWritesInsteadOfDroppingTheChange() throws Exception {
+        Server a = server(), b = server();
+        joinBoth(a, b);
+
+        b.save(player, waypoint("mine", 1));
+        assertTrue(b.db.getWriteQueue().flush());
+        a.save(player, waypoint("home", 2));
+
+        // Reloading now would lose the queued write, the cache keeps it and waits
+        a.poll.run();
+        assertEquals(null, a.waypoints(player).get("mine"));
+        assertEquals(2, a.waypoints(player).get("home").getLocation().getX());
+
+        assertTrue(a.db.getWriteQueue().flush());
+        assertEquals(1, a.waypoints(player).get("mine").getLocation().getX());
+        assertEquals(2, a.waypoints(player).get("home").getLocation().getX());
+    }
+
+    @Test
+    void staleCacheWithQueuedWritesIsKeptUntilTheyAreCommitted() throws Exception {
+        Server a = server(), b = server();
+        joinBoth(a, b);
+
+        b.save(player, waypoint("mine", 1));
+        assertTrue(b.db.getWriteQueue().flush());
+        a.save(player, waypoint("home", 2));
+
+        assertEquals(false, a.coherence.isStale(player));
+        assertTrue(a.db.getWriteQueue().flush());
+        assertEquals(1, a.waypoints(player).get("mine").getLocation().getX());
+        assertEquals(2, a.waypoints(player).get("home").getLocation().getX());
+    }
+
+    @Test
+    void refusedLoginReleasesDataKeptForIt() throws Exception {
+        Server a = server();
+        a.loader.ensureLoaded(player).join();
+
+        AsyncPlayerPreLoginEvent preLogin = mock(AsyncPlayerPreLoginEvent.class);
+        when(preLogin.getUniqueId()).thenReturn(player);
+        when(preLogin.getLoginResult()).thenReturn(AsyncPlayerPreLoginEvent.Result.ALLOWED);
+        a.loader.onPreLogin(preLogin);
+        // The quit of the previous session keeps the data for the login under way
+        a.loader.releaseIfOffline(player);
+        assertTrue(a.loader.isCached(player));
+
+        PlayerProfile profile = mock(PlayerProfile.class);
+        when(profile.getId()).thenReturn(player);
+        PlayerLoginConnection connection = mock(PlayerLoginConnection.class);
+        when(connection.getAuthenticatedProfile()).thenReturn(profile);
+        PlayerConnectionValidateLoginEvent validate = mock(PlayerConnectionValidateLoginEvent.class);
+        when(validate.getConnection()).thenReturn(connection);
+        when(validate.isAllowed()).thenReturn(false);
+        a.loader.onValidateLogin(validate);
+
+        assertFalse(a.loader.isCached(player));
+    }
+}
@@ -0,0 +1,124 @@
+package me.rrs.titleInfo;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Round trips through the write-behind queue against SQLite, and H2 standing in for MySQL through
+ * {@code storage.network.url}. H2 has no {@code ON CONFLICT ... DO UPDATE}, the PostgreSQL upsert
+ * shares that syntax with SQLite.
+ */
+class DatabaseManagerTest {
+
+    @TempDir
+    Path dataFolder;
+
+    private DatabaseManager db;
+
+    @AfterEach
+    void close() {
+        if (db != null) db.close();
+    }
+
+    private DatabaseManager open(String type) throws Exception {
+        YamlDocument config = TestPlugins.config();
+        config.set("storage.type", type);
+        if (!type.equals("sqlite")) {
+            config.set("storage.network.url", "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+            config.set("storage.network.pool.min_idle", 0);
+        }
+        db = new DatabaseManager(TestPlugins.plugin(config, dataFolder.toFile()));
+        return db;
+    }
+
+    private static Waypoint waypoint(String name, double x) {
+        return new Waypoint(name, new Location(TestPlugins.world(), x, 64, -x));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "mysql"})
+    void savingAWaypointAgainUpdatesIt(String type) throws Exception {
+        DatabaseManager db = open(type);
+        UUID player = UUID.randomUUID();
+
+        db.saveWaypoint(player, waypoint("Home", 1));
+        assertTrue(db.getWriteQueue().flush());
+        db.saveWaypoint(player, waypoint("Home", 2));
+        assertTrue(db.getWriteQueue().flush());
+
+        List<Waypoint> waypoints = db.getPlayerWaypoints(player);
+        assertEquals(1, waypoints.size());
+        assertEquals("Home", waypoints.get(0).getName());
+        assertEquals(2, waypoints.get(0).getLocation().getX());
+        assertEquals(-2, waypoints.get(0).getLocation().getZ());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "mysql"})
+    void savingWithDifferentCaseReplacesTheName(String type) throws Exception {
+        DatabaseManager db = open(type);
+        UUID player = UUID.randomUUID();
+
+        db.saveWaypoint(player, waypoint("home", 1));
+        assertTrue(db.getWriteQueue().flush());
+        db.saveWaypoint(player, waypoint("HOME", 3));
+        assertTrue(db.getWriteQueue().flush());
+
+        List<Waypoint> waypoints = db.getPlayerWaypoints(player);
+        assertEquals(1, waypoints.size());
+        assertEquals("HOME", waypoints.get(0).getName());
+        assertEquals(3, waypoints.get(0).getLocation().getX());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "mysql"})
+    void savingAPublicWaypointAgainUpdatesIt(String type) throws Exception {
+        DatabaseManager db = open(type);
+
+        db.savePublicWaypoint(waypoint("Spawn", 1));
+        assertTrue(db.getWriteQueue().flush());
+        db.savePublicWaypoint(waypoint("spawn", 5));
+        assertTrue(db.getWriteQueue().flush());
+
+        List<Waypoint> waypoints = db.getPublicWaypoints();
+        assertEquals(1, waypoints.size());
+        assertEquals("spawn", waypoints.get(0).getName());
+        assertEquals(5, waypoints.get(0).getLocation().getX());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "mysql"})
+    void pagesOnlyCountLoadedWorlds(String type) throws Exception {
+        DatabaseManager db = open(type);
+        UUID player = UUID.randomUUID();
+        World unloaded = mock(World.class);
+        when(unloaded.getName()).thenReturn("world_unloaded");
+
+        db.saveWaypoint(player, waypoint("a", 1));
+        db.saveWaypoint(player, new Waypoint("b", new Location(unloaded, 2, 64, 0)));
+        db.saveWaypoint(player, waypoint("c", 3));
+        assertTrue(db.getWriteQueue().flush());
+
+        PlayerStorage.WaypointPage page = db.getWaypointPage(player, null, 0, 10);
+        assertEquals(2, page.total());
+        assertEquals(List.of("a", "c"), page.waypoints().stream().map(Waypoint::getName).toList());
+
+        page = db.getWaypointPage(player, new Location(TestPlugins.world(), 3, 64, -3), 1, 1);
+        assertEquals(2, page.total());
+        assertEquals(List.of("a"), page.waypoints().stream().map(Waypoint::getName).toList());
+    }
+}
@@ -0,0 +1,178 @@
+package me.rrs.titleInfo;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migrations against SQLite, and H2 standing in for MySQL.
+ */
+class SchemaMigratorTest {
+
+    private static final Logger LOGGER = Logger.getLogger("SchemaMigratorTest");
+
+    @TempDir
+    Path dataFolder;
+
+    private ConnectionPool pool;
+    private SchemaMigrator migrator;
+
+    @AfterEach
+    void close() {
+        if (migrator != null) migrator.close();
+        if (pool != null) pool.close();
+    }
+
+    private SqlDialect open(String type) throws Exception {
+        YamlDocument config = TestPlugins.config();
+        if (type.equals("sqlite")) {
+            pool = new SqliteConnectionPool(new File(dataFolder.toFile(), "titleinfo.db"), config);
+            return SqlDialect.SQLITE;
+        }
+        config.set("storage.network.url", "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        config.set("storage.network.pool.min_idle", 0);
+        pool = new HikariConnectionPool(SqlDialect.MYSQL, config);
+        return SqlDialect.MYSQL;
+    }
+
+    private void createLegacyTable() throws SQLException {
+        try (SqlSession session = pool.writer();
+             Statement stmt = session.getConnection().createStatement()) {
+            stmt.executeUpdate("CREATE TABLE legacy (id INT PRIMARY KEY)");
+            stmt.executeUpdate("INSERT INTO legacy (id) VALUES (1)");
+        }
+    }
+
+    @FunctionalInterface
+    private interface StatementAction {
+        void run(Statement stmt) throws SQLException;
+    }
+
+    private static SchemaMigrator.BackgroundStep dropLegacy(StatementAction afterDrop, StatementAction compaction) {
+        return new SchemaMigrator.BackgroundStep() {
+            @Override
+            public int migrateBatch(SqlSession session, int limit) {
+                return 0;
+            }
+
+            @Override
+            public void finish(SqlSession session) throws SQLException {
+                try (Statement stmt = session.getConnection().createStatement()) {
+                    stmt.executeUpdate("DROP TABLE IF EXISTS legacy");
+                    afterDrop.run(stmt);
+                }
+            }
+
+            @Override
+            public void compact(Statement stmt) throws SQLException {
+                compaction.run(stmt);
+            }
+        };
+    }
+
+    private int count(String sql) throws SQLException {
+        try (SqlSession session = pool.reader();
+             Statement stmt = session.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "mysql"})
+    void anotherServerRecordingTheVersionFirstIsNotAnError(String type) throws Exception {
+        SqlDialect dialect = open(type);
+        // Another server starting on the same empty database gets there between the read and the insert
+        SchemaMigrator.SchemaStep concurrent = session -> {
+            try (Statement stmt = session.getConnection().createStatement()) {
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS example (id INT PRIMARY KEY)");
+                stmt.executeUpdate("INSERT INTO titleinfo_schema (version, complete) VALUES (2, 1)");
+            }
+        };
+        migrator = new SchemaMigrator(LOGGER, pool, dialect, List.of(
+                new SchemaMigrator.Migration(2, "example", concurrent, null)), 100, 0);
+
+        migrator.migrate("legacy");
+
+        assertFalse(migrator.isPending(2));
+        assertEquals(1, count("SELECT COUNT(*) FROM titleinfo_schema WHERE version = 2"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite"})
+    void anInterruptedCleanupKeepsTheOldTablesReadable(String type) throws Exception {
+        SqlDialect dialect = open(type);
+        createLegacyTable();
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        SchemaMigrator.BackgroundStep step = dropLegacy(stmt -> {
+            failed.complete(null);
+            throw new SQLException("failed after the drop");
+        }, stmt -> {
+        });
+        migrator = new SchemaMigrator(LOGGER, pool, dialect, List.of(
+                new SchemaMigrator.Migration(2, "example", session -> {
+                }, step)), 100, 0);
+
+        migrator.migrate("legacy");
+        migrator.startBackground();
+        failed.get(5, TimeUnit.SECONDS);
+        migrator.close();
+
+        assertTrue(migrator.isPending(2));
+        assertEquals(1, count("SELECT COUNT(*) FROM legacy"));
+        assertEquals(0, count("SELECT complete FROM titleinfo_schema WHERE version = 2"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "mysql"})
+    void compactingDoesNotBlockReads(String type) throws Exception {
+        SqlDialect dialect = open(type);
+        createLegacyTable();
+        AtomicBoolean readDuringCompaction = new AtomicBoolean();
+        CompletableFuture<Void> compacted = new CompletableFuture<>();
+        SchemaMigrator.BackgroundStep step = dropLegacy(stmt -> {
+        }, stmt -> {
+            CompletableFuture<Void> read = CompletableFuture.runAsync(() -> {
+                migrator.lockShared();
+                migrator.unlockShared();
+            });
+            try {
+                read.get(5, TimeUnit.SECONDS);
+                readDuringCompaction.set(true);
+            } catch (Exception e) {
+                // Left false
+            }
+            compacted.complete(null);
+        });
+        migrator = new SchemaMigrator(LOGGER, pool, dialect, List.of(
+                new SchemaMigrator.Migration(2, "example", session -> {
+                }, step)), 100, 0);
+
+        migrator.migrate("legacy");
+        migrator.startBackground();
+        compacted.get(10, TimeUnit.SECONDS);
+
+        assertTrue(readDuringCompaction.get());
+        assertFalse(migrator.isPending(2));
+        assertEquals(1, count("SELECT complete FROM titleinfo_schema WHERE version = 2"));
+    }
+}
@@ -0,0 +1,62 @@
+package me.rrs.titleInfo;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import org.bukkit.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShareLimiterTest {
+
+    private static ShareLimiter limiter(double perMinute, long coalesceMs) throws Exception {
+        YamlDocument config = TestPlugins.config();
+        config.set("share.rate_limit.player_burst", 2);
+        config.set("share.rate_limit.player_per_minute", perMinute);
+        config.set("share.coalesce_ms", coalesceMs);
+        return new ShareLimiter(TestPlugins.plugin(config, null));
+    }
+
+    private static Location at(int x) {
+        return new Location(TestPlugins.world(), x, 64, 0);
+    }
+
+    @Test
+    void limitOutlivesEvictionUntilTheBucketRefills() throws Exception {
+        ShareLimiter limiter = limiter(1, 0);
+        UUID sender = UUID.randomUUID(), target = UUID.randomUUID();
+
+        assertEquals(ShareLimiter.Result.ALLOWED, limiter.tryShare(sender, target, at(1)));
+        assertEquals(ShareLimiter.Result.ALLOWED, limiter.tryShare(sender, target, at(2)));
+        assertEquals(ShareLimiter.Result.PLAYER_LIMITED, limiter.tryShare(sender, target, at(3)));
+
+        // Quitting and rejoining does not reset the limit, only a refilled bucket is evicted
+        limiter.evictIdle();
+        assertEquals(1, limiter.getSenderCount());
+        assertEquals(ShareLimiter.Result.PLAYER_LIMITED, limiter.tryShare(sender, target, at(4)));
+    }
+
+    @Test
+    void refilledBucketsAreEvicted() throws Exception {
+        ShareLimiter limiter = limiter(6_000_000, 0);
+        UUID sender = UUID.randomUUID();
+
+        assertEquals(ShareLimiter.Result.ALLOWED, limiter.tryShare(sender, UUID.randomUUID(), at(1)));
+        Thread.sleep(5);
+        limiter.evictIdle();
+        assertEquals(0, limiter.getSenderCount());
+    }
+
+    @Test
+    void senderIsKeptWhileARepeatWouldStillCoalesce() throws Exception {
+        ShareLimiter limiter = limiter(6_000_000, 60_000);
+        UUID sender = UUID.randomUUID(), target = UUID.randomUUID();
+
+        assertEquals(ShareLimiter.Result.ALLOWED, limiter.tryShare(sender, target, at(1)));
+        Thread.sleep(5);
+        limiter.evictIdle();
+        assertEquals(1, limiter.getSenderCount());
+        assertEquals(ShareLimiter.Result.COALESCED, limiter.tryShare(sender, target, at(1)));
+    }
+}
@@ -0,0 +1,47 @@
+package me.rrs.titleInfo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlDialectTest {
+
+    private static List<String> insertedColumns(String sql) {
+        String columns = sql.substring(sql.indexOf('(') + 1, sql.indexOf(')'));
+        return Arrays.asList(columns.split(", "));
+    }
+
+    private static int placeholders(String sql) {
+        String values = sql.substring(sql.indexOf("VALUES ("), sql.indexOf(')', sql.indexOf("VALUES (")));
+        return (int) values.chars().filter(c -> c == '?').count();
+    }
+
+    @ParameterizedTest
+    @EnumSource(SqlDialect.class)
+    void upsertInsertsAnUpdatedKeyColumnOnce(SqlDialect dialect) {
+        String sql = dialect.upsert("titleinfo_waypoints",
+                new String[]{"uuid_msb", "uuid_lsb", "name"}, new String[]{"name", "world_id", "x", "y", "z"});
+
+        List<String> columns = insertedColumns(sql);
+        assertEquals(List.of("uuid_msb", "uuid_lsb", "name", "world_id", "x", "y", "z"), columns);
+        assertEquals(columns.size(), new HashSet<>(columns).size());
+        assertEquals(columns.size(), placeholders(sql));
+    }
+
+    @Test
+    void upsertUpdatesOnTheKey() {
+        String[] key = {"name_key"}, update = {"name", "x"};
+        assertEquals("INSERT INTO t (name_key, name, x) VALUES (?, ?, ?) " +
+                "ON CONFLICT (name_key) DO UPDATE SET name = excluded.name, x = excluded.x",
+                SqlDialect.POSTGRESQL.upsert("t", key, update));
+        assertEquals("INSERT INTO t (name_key, name, x) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE name = VALUES(name), x = VALUES(x)",
+                SqlDialect.MYSQL.upsert("t", key, update));
+    }
+}
@@ -0,0 +1,59 @@
+package me.rrs.titleInfo;
+
+import me.rrs.titleInfo.TemplateParser.Part;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TemplateParserTest {
+
+    private static Part<String>[] parse(String template) {
+        return TemplateParser.parse(template, tag -> tag.equals("name") ? "name" : null);
+    }
+
+    @Test
+    void closingTagRestoresThePreviousStyle() {
+        Part<String>[] parts = parse("<gold>[<bold><name></bold>]<reset> done");
+
+        Style gold = Style.style(NamedTextColor.GOLD);
+        assertEquals(4, parts.length);
+        assertEquals(Component.text("[", gold), parts[0].component());
+        assertEquals("name", parts[1].slot());
+        assertEquals(gold.decorate(TextDecoration.BOLD), parts[1].style());
+        assertEquals(Component.text("]", gold), parts[2].component());
+        assertEquals(Component.text(" done", Style.empty()), parts[3].component());
+    }
+
+    @Test
+    void hexColorsAndUnknownTags() {
+        Part<String>[] parts = parse("<#ffaa00>a <nope> b");
+
+        assertEquals(1, parts.length);
+        assertNull(parts[0].slot());
+        assertEquals(Component.text("a <nope> b", TextColor.color(0xffaa00)), parts[0].component());
+    }
+
+    @Test
+    void shareTemplateFillsItsSlots() {
+        Component message = ShareTemplate.compile("<yellow><player></yellow> at <x> <y> <z> in <world>")
+                .render("Steve", 1, -2, 3, "world");
+
+        assertEquals(Component.text()
+                .append(Component.text("Steve", NamedTextColor.YELLOW))
+                .append(Component.text(" at ", Style.empty()))
+                .append(Component.text("1", Style.empty()))
+                .append(Component.text(" ", Style.empty()))
+                .append(Component.text("-2", Style.empty()))
+                .append(Component.text(" ", Style.empty()))
+                .append(Component.text("3", Style.empty()))
+                .append(Component.text(" in ", Style.empty()))
+                .append(Component.text("world", Style.empty()))
+                .build(), message);
+    }
+}
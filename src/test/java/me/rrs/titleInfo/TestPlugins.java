@@ -0,0 +1,82 @@
+package me.rrs.titleInfo;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A mocked plugin on a stub server with a single loaded world, enough to run storage headless.
+ */
+final class TestPlugins {
+
+    static final String WORLD_NAME = "world";
+
+    private static World world;
+
+    private TestPlugins() {
+    }
+
+    static synchronized World world() {
+        if (world != null) return world;
+
+        world = mock(World.class);
+        when(world.getName()).thenReturn(WORLD_NAME);
+        when(world.getUID()).thenReturn(new UUID(0, 1));
+
+        Server server = mock(Server.class);
+        when(server.getWorld(WORLD_NAME)).thenReturn(world);
+        when(server.getWorlds()).thenReturn(List.of(world));
+        when(server.getLogger()).thenReturn(Logger.getLogger("Server"));
+        try {
+            // Bukkit.setServer() logs build info that needs a real server
+            Field field = Bukkit.class.getDeclaredField("server");
+            field.setAccessible(true);
+            field.set(null, server);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to install the stub server", e);
+        }
+        return world;
+    }
+
+    /**
+     * The bundled config.yml, as a fresh copy that tests can change.
+     */
+    static YamlDocument config() throws IOException {
+        try (InputStream in = TitleInfo.class.getResourceAsStream("/config.yml")) {
+            if (in == null) throw new IOException("config.yml not found on the classpath");
+            return YamlDocument.create(in);
+        }
+    }
+
+    static TitleInfo plugin(YamlDocument config, File dataFolder) {
+        world();
+        Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+
+        TitleInfo plugin = mock(TitleInfo.class);
+        when(plugin.getConfiguration()).thenReturn(config);
+        when(plugin.getSettings()).thenReturn(PluginSettings.parse(config));
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("TitleInfo"));
+        when(plugin.getDataFolder()).thenReturn(dataFolder);
+        when(plugin.getServer()).thenReturn(Bukkit.getServer());
+        when(plugin.getSessions()).thenReturn(sessions);
+        when(plugin.getSession(any())).thenAnswer(invocation -> sessions.get(invocation.<UUID>getArgument(0)));
+        when(plugin.getMetrics()).thenReturn(new Metrics());
+        when(plugin.getPublicWaypoints()).thenReturn(new PublicWaypoints(64));
+        return plugin;
+    }
+}
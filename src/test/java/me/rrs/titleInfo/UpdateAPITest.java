@@ -0,0 +1,193 @@
+package me.rrs.titleInfo;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The update checker against a local HTTP stub whose status, body and delay each test sets.
+ */
+class UpdateAPITest {
+
+    private static final Logger LOGGER = Logger.getLogger("UpdateAPITest");
+
+    @TempDir
+    Path dataFolder;
+
+    private HttpServer server;
+    private URI endpoint;
+    private File cacheFile;
+    private final List<UpdateAPI> checkers = new ArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile int status = 200;
+    private volatile String body = "1.2.3";
+    private volatile long delayMs;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/version", exchange -> {
+            requests.incrementAndGet();
+            try {
+                if (delayMs > 0) Thread.sleep(delayMs);
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (InterruptedException | IOException ignored) {
+                // The client gave up, nothing left to answer
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/version");
+        cacheFile = dataFolder.resolve("update-cache.properties").toFile();
+    }
+
+    @AfterEach
+    void stop() {
+        checkers.forEach(UpdateAPI::close);
+        server.stop(0);
+    }
+
+    private UpdateAPI checker(long timeoutMs, long cacheTtlMs, long retryMinMs, long retryMaxMs) {
+        UpdateAPI checker = new UpdateAPI(LOGGER, endpoint, cacheFile,
+                new PluginSettings.Updates(true, endpoint.toString(), timeoutMs, cacheTtlMs, retryMinMs, retryMaxMs));
+        checkers.add(checker);
+        return checker;
+    }
+
+    private String latest(UpdateAPI checker) throws Exception {
+        return checker.getLatestVersion().get(5, TimeUnit.SECONDS);
+    }
+
+    private Properties cache() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile.toPath())) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    @Test
+    void freshResultIsServedFromTheCacheAcrossRestarts() throws Exception {
+        assertEquals("1.2.3", latest(checker(2000, 60_000, 60_000, 60_000)));
+        assertEquals(1, requests.get());
+        assertEquals("1.2.3", cache().getProperty("version"));
+
+        body = "2.0.0";
+        assertEquals("1.2.3", latest(checker(2000, 60_000, 60_000, 60_000)));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void expiredResultIsCheckedAgainAndKeptIfTheCheckFails() throws Exception {
+        UpdateAPI checker = checker(2000, 0, 60_000, 60_000);
+        assertEquals("1.2.3", latest(checker));
+
+        body = "2.0.0";
+        assertEquals("2.0.0", latest(checker));
+        assertEquals(2, requests.get());
+
+        status = 500;
+        assertEquals("2.0.0", latest(checker));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void failuresBackOffWithDoublingDelays() throws Exception {
+        status = 503;
+        UpdateAPI checker = checker(2000, 60_000, 200, 400);
+
+        assertNull(latest(checker));
+        assertEquals(1, requests.get());
+        assertEquals("1", cache().getProperty("failures"));
+
+        // Backing off, no request until the delay has passed
+        assertNull(latest(checker));
+        assertEquals(1, requests.get());
+
+        Thread.sleep(250);
+        long before = System.currentTimeMillis();
+        assertNull(latest(checker));
+        long after = System.currentTimeMillis();
+        assertEquals(2, requests.get());
+        long retryAt = Long.parseLong(cache().getProperty("retry_at"));
+        assertTrue(retryAt >= before + 400 && retryAt <= after + 400, "second delay is doubled to the max");
+
+        // The backoff survives a restart
+        assertNull(latest(checker(2000, 60_000, 200, 400)));
+        assertEquals(2, requests.get());
+
+        Thread.sleep(450);
+        status = 200;
+        assertEquals("1.2.3", latest(checker));
+        assertEquals("0", cache().getProperty("failures"));
+    }
+
+    @Test
+    void slowResponseTimesOutAsAFailure() throws Exception {
+        delayMs = 3000;
+        UpdateAPI checker = checker(200, 60_000, 60_000, 60_000);
+
+        long start = System.nanoTime();
+        assertNull(latest(checker));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "gave up at the timeout");
+        assertEquals("1", cache().getProperty("failures"));
+    }
+
+    @Test
+    void concurrentCallsShareOneRequest() throws Exception {
+        delayMs = 200;
+        UpdateAPI checker = checker(2000, 60_000, 60_000, 60_000);
+
+        CompletableFuture<String> first = checker.getLatestVersion();
+        CompletableFuture<String> second = checker.getLatestVersion();
+        assertEquals("1.2.3", first.get(5, TimeUnit.SECONDS));
+        assertEquals("1.2.3", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void cacheForAnotherEndpointIsIgnored() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("endpoint", "http://example.invalid/version");
+        properties.setProperty("version", "0.1");
+        properties.setProperty("checked_at", Long.toString(System.currentTimeMillis()));
+        try (OutputStream out = Files.newOutputStream(cacheFile.toPath())) {
+            properties.store(out, null);
+        }
+
+        assertEquals("1.2.3", latest(checker(2000, 60_000, 60_000, 60_000)));
+        assertEquals(1, requests.get());
+    }
+}